@@ -11,6 +11,9 @@ curl --request GET --cookie cookie.jar http://localhost:8080/offers
 #   list all offers
 curl --request GET --cookie cookie.jar http://localhost:8080/offers
 
+#   list offers page by page, cursor is taken from the "next" link of the previous page
+curl --request GET --cookie cookie.jar "http://localhost:8080/offers?size=10&cursor=aWQ6MjU"
+
 #   read a single offer
 curl --request GET --cookie cookie.jar http://localhost:8080/offers/1
 
@@ -31,6 +34,12 @@ curl --cookie cookie.jar --request GET http://localhost:8080/applications/total
 #   get total number of applications for an offer
 curl --cookie cookie.jar --request GET http://localhost:8080/applications/total?offerId=1
 
+#   get total number of invited applications for an offer
+curl --cookie cookie.jar --request GET "http://localhost:8080/applications/total?offerId=1&applicationStatus=INVITED"
+
+#   export applications submitted in January 2019 as newline delimited json
+curl --cookie cookie.jar --request GET "http://localhost:8080/applications/export?from=2019-01-01&to=2019-01-31"
+
 #   read a single application
 curl --cookie cookie.jar --request GET http://localhost:8080/applications/1
 
@@ -1,5 +1,6 @@
 package com.heavenhr.rproc.rproc;
 
+import com.heavenhr.rproc.rproc.messaging.NotificationProperties;
 import com.heavenhr.rproc.rproc.storage.StorageProperties;
 import com.heavenhr.rproc.rproc.storage.StorageService;
 import org.springframework.boot.CommandLineRunner;
@@ -9,7 +10,7 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.Bean;
 
 @SpringBootApplication
-@EnableConfigurationProperties(StorageProperties.class)
+@EnableConfigurationProperties({StorageProperties.class, NotificationProperties.class})
 public class RprocApplication {
 
 	public static void main(String[] args) {
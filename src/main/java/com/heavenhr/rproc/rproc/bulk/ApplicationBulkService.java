@@ -0,0 +1,214 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.bulk;
+
+import com.heavenhr.rproc.rproc.duplicates.SubmittedEmailIndex;
+import com.heavenhr.rproc.rproc.entities.Application;
+import com.heavenhr.rproc.rproc.entities.ApplicationPartial;
+import com.heavenhr.rproc.rproc.entities.Offer;
+import com.heavenhr.rproc.rproc.entities.OfferFunnel;
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import com.heavenhr.rproc.rproc.exceptions.ApplicationAlreadySubmittedException;
+import com.heavenhr.rproc.rproc.messaging.ApplicationStatusNotificationService;
+import com.heavenhr.rproc.rproc.repositories.ApplicationRepository;
+import com.heavenhr.rproc.rproc.repositories.OfferRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Submits many applications or changes status of many applications at once.
+ *
+ * Offers are loaded once per distinct offer id, already submitted applications are found with a single query
+ * which is skipped for items SubmittedEmailIndex knows to be new
+ * and new applications together with their status histories are inserted in JDBC batches
+ * (see hibernate.jdbc.batch_size and hibernate.order_inserts properties).
+ *
+ * Status changes load all applications with a single query, histories are inserted in batches
+ * and notifications are sent together
+ */
+@Slf4j
+@Service
+public class ApplicationBulkService {
+    public static final int MAX_SIZE = 1000;
+
+    private final ApplicationRepository applicationRepository;
+    private final OfferRepository offerRepository;
+    private final Validator validator;
+    private final ApplicationStatusNotificationService notificationService;
+    private final SubmittedEmailIndex submittedEmailIndex;
+
+    @Autowired
+    public ApplicationBulkService(
+            ApplicationRepository applicationRepository,
+            OfferRepository offerRepository,
+            Validator validator,
+            ApplicationStatusNotificationService notificationService,
+            SubmittedEmailIndex submittedEmailIndex){
+        this.applicationRepository = applicationRepository;
+        this.offerRepository = offerRepository;
+        this.validator = validator;
+        this.notificationService = notificationService;
+        this.submittedEmailIndex = submittedEmailIndex;
+    }
+
+    private static void checkSize(int size){
+        if (size < 1 || size > MAX_SIZE){
+            throw new IllegalArgumentException(String.format("bulk size is invalid: %d", size));
+        }
+    }
+
+    /**
+     * items are independent: invalid, duplicated or submitted to not existing offers ones are skipped
+     *
+     * @param applicationPartials
+     * @return result for every item in the same order
+     * @throws IllegalArgumentException if number of items is not in 1..MAX_SIZE
+     * @throws ApplicationAlreadySubmittedException if an application is submitted concurrently, nothing is saved
+     */
+    @Transactional
+    public List<BulkSubmissionResult> submit(List<ApplicationPartial> applicationPartials){
+        int size = applicationPartials.size();
+        checkSize(size);
+
+        BulkSubmissionResult[] results = new BulkSubmissionResult[size];
+
+        Set<Long> offerIds = new HashSet<>();
+        //  offers and emails of items which might be submitted already
+        Set<Long> maybeOfferIds = new HashSet<>();
+        Set<String> maybeEmails = new HashSet<>();
+        for (int i = 0; i < size; i++){
+            ApplicationPartial applicationPartial = applicationPartials.get(i);
+            Set<ConstraintViolation<ApplicationPartial>> violations = validator.validate(applicationPartial);
+            if (!violations.isEmpty()){
+                results[i] = BulkSubmissionResult.invalid(
+                        i,
+                        violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.toList()));
+                continue;
+            }
+
+            offerIds.add(applicationPartial.getOfferId());
+            if (submittedEmailIndex.mightContain(applicationPartial.getOfferId(), applicationPartial.getEmail())){
+                maybeOfferIds.add(applicationPartial.getOfferId());
+                maybeEmails.add(applicationPartial.getEmail());
+            }
+        }
+
+        Map<Long, Offer> offers = new HashMap<>();
+        //  pairs of email and offer id which are already taken, either in the database or earlier in this bulk
+        Set<ApplicationPartial> submitted = new HashSet<>();
+        if (!offerIds.isEmpty()){
+            offerRepository.findAllById(offerIds).forEach(offer -> offers.put(offer.getId(), offer));
+        }
+        if (!maybeOfferIds.isEmpty()){
+            submitted.addAll(applicationRepository.findSubmittedByOfferIdInAndEmailIn(maybeOfferIds, maybeEmails));
+        }
+
+        List<Application> applications = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < size; i++){
+            if (results[i] != null) continue;
+
+            ApplicationPartial applicationPartial = applicationPartials.get(i);
+            Offer offer = offers.get(applicationPartial.getOfferId());
+            if (offer == null){
+                results[i] = BulkSubmissionResult.rejected(i, BulkSubmissionResult.Status.OFFER_NOT_FOUND);
+            }else if (!submitted.add(applicationPartial)){
+                results[i] = BulkSubmissionResult.rejected(i, BulkSubmissionResult.Status.DUPLICATE);
+            }else{
+                Application application = new Application(applicationPartial);
+                application.setOffer(offer);
+                applications.add(application);
+                indexes.add(i);
+            }
+        }
+
+        try{
+            applicationRepository.saveAll(applications);
+            //  flush right away to get unique constraint violation here, not on commit
+            applicationRepository.flush();
+        }catch (DataIntegrityViolationException e){
+            throw new ApplicationAlreadySubmittedException();
+        }
+
+        Map<Long, OfferFunnel> deltas = new HashMap<>();
+        for (int i = 0; i < applications.size(); i++){
+            Application application = applications.get(i);
+            results[indexes.get(i)] = BulkSubmissionResult.created(indexes.get(i), application.getId());
+            submittedEmailIndex.put(application.getOffer().getId(), application.getEmail());
+            deltas.computeIfAbsent(application.getOffer().getId(), id -> new OfferFunnel())
+                    .addTransition(null, application.getApplicationStatus());
+        }
+        deltas.forEach(offerRepository::updateFunnel);
+
+        log.info("{} of {} applications submitted in bulk", applications.size(), size);
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * applications are independent: not existing ones or ones the status cannot be set to are skipped
+     * (see Application.setApplicationStatus())
+     *
+     * @param applicationStatus
+     * @param applicationIds
+     * @return result for every id in the same order
+     * @throws IllegalArgumentException if number of ids is not in 1..MAX_SIZE
+     * @throws OptimisticLockingFailureException if an application is changed concurrently, nothing is saved
+     */
+    @Transactional
+    public List<BulkTransitionResult> transition(ApplicationStatus applicationStatus, List<Long> applicationIds){
+        checkSize(applicationIds.size());
+
+        Map<Long, Application> applications = new HashMap<>();
+        applicationRepository
+                .findAllWithOfferByIdIn(new HashSet<>(applicationIds))
+                .forEach(application -> applications.put(application.getId(), application));
+
+        List<BulkTransitionResult> results = new ArrayList<>(applicationIds.size());
+        //  an application may be listed more than once, it is updated only once
+        Set<Application> updated = new LinkedHashSet<>();
+        Map<Long, OfferFunnel> deltas = new HashMap<>();
+        for (long applicationId: applicationIds){
+            Application application = applications.get(applicationId);
+            if (application == null){
+                results.add(BulkTransitionResult.notFound(applicationId));
+                continue;
+            }
+
+            ApplicationStatus previousStatus = application.getApplicationStatus();
+            try{
+                application.setApplicationStatus(applicationStatus);
+            }catch (IllegalArgumentException e){
+                results.add(BulkTransitionResult.invalid(applicationId, e.getMessage()));
+                continue;
+            }
+
+            updated.add(application);
+            deltas.computeIfAbsent(application.getOffer().getId(), id -> new OfferFunnel())
+                    .addTransition(previousStatus, applicationStatus);
+            results.add(BulkTransitionResult.updated(applicationId));
+        }
+
+        //  applications' updates and histories' inserts are sent in batches
+        applicationRepository.flush();
+        deltas.forEach(offerRepository::updateFunnel);
+
+        //  the same as for a single application notifications are saved to the outbox in this transaction
+        //  or published once it is committed
+        notificationService.sendNotifications(updated);
+
+        log.info("{} of {} applications changed status to '{}'", updated.size(), applicationIds.size(), applicationStatus);
+
+        return results;
+    }
+}
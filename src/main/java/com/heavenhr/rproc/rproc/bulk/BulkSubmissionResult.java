@@ -0,0 +1,44 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.bulk;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a single item of bulk applications' submission, index is the item's position in the request
+ */
+@Data
+public class BulkSubmissionResult {
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        OFFER_NOT_FOUND,
+        INVALID
+    }
+
+    private final int index;
+    private final Status status;
+
+    @JsonInclude(value = JsonInclude.Include.NON_NULL)
+    private final Long applicationId;
+
+    @JsonInclude(value = JsonInclude.Include.NON_EMPTY)
+    private final List<String> errors;
+
+    public static BulkSubmissionResult created(int index, long applicationId){
+        return new BulkSubmissionResult(index, Status.CREATED, applicationId, Collections.emptyList());
+    }
+
+    public static BulkSubmissionResult rejected(int index, Status status){
+        return new BulkSubmissionResult(index, status, null, Collections.emptyList());
+    }
+
+    public static BulkSubmissionResult invalid(int index, List<String> errors){
+        return new BulkSubmissionResult(index, Status.INVALID, null, errors);
+    }
+}
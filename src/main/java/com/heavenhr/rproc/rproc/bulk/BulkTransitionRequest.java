@@ -0,0 +1,27 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.bulk;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Body of PATCH /applications/status: the new status for all listed applications
+ */
+@Data
+@NoArgsConstructor(access = AccessLevel.PUBLIC)
+public class BulkTransitionRequest {
+    private String applicationStatus;
+
+    private List<Long> applicationIds = new ArrayList<>();
+
+    public BulkTransitionRequest(String applicationStatus, List<Long> applicationIds){
+        this.applicationStatus = applicationStatus;
+        this.applicationIds = applicationIds;
+    }
+}
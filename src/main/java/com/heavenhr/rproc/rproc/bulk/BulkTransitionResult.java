@@ -0,0 +1,37 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.bulk;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+/**
+ * Result of a status change of a single application of a bulk transition
+ */
+@Data
+public class BulkTransitionResult {
+    public enum Status {
+        UPDATED,
+        NOT_FOUND,
+        INVALID_TRANSITION
+    }
+
+    private final long applicationId;
+    private final Status status;
+
+    @JsonInclude(value = JsonInclude.Include.NON_NULL)
+    private final String error;
+
+    public static BulkTransitionResult updated(long applicationId){
+        return new BulkTransitionResult(applicationId, Status.UPDATED, null);
+    }
+
+    public static BulkTransitionResult notFound(long applicationId){
+        return new BulkTransitionResult(applicationId, Status.NOT_FOUND, null);
+    }
+
+    public static BulkTransitionResult invalid(long applicationId, String error){
+        return new BulkTransitionResult(applicationId, Status.INVALID_TRANSITION, error);
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.caching;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * caches are created by spring boot's caffeine cache manager,
+ * size, ttl and statistics are set by spring.cache.caffeine.spec
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    /**
+     * offers looked up by id: OfferByIdConverter and application submissions.
+     * Entries are detached and may have outdated counters, they must be used as references only
+     */
+    public static final String OFFERS = "offers";
+
+    /**
+     * hibernate's second-level cache region of Offer entities, see CaffeineRegionFactory
+     */
+    public static final String OFFER_REGION = "offer";
+}
@@ -0,0 +1,100 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.caching;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * hibernate's second-level cache regions kept in caffeine's jcache.
+ * Every session factory gets its own cache manager, thus, entities of different databases are never mixed up
+ * and closing a session factory does not close regions of another one.
+ *
+ * Regions are configured with hibernate properties (spring.jpa.properties.* in application.properties):
+ *
+ *     rproc.cache.region.[region].maximum_size = 1000
+ *     rproc.cache.region.[region].expire_after_write = PT10M
+ *
+ * regions not configured are unbounded
+ */
+public class CaffeineRegionFactory extends JCacheRegionFactory {
+    public static final String REGION_PREFIX = "rproc.cache.region.";
+
+    private static final AtomicInteger CACHE_MANAGERS = new AtomicInteger();
+
+    private final Map<String, CaffeineConfiguration<Object, Object>> regions = new HashMap<>();
+
+    @Override
+    protected CacheManager resolveCacheManager(SessionFactoryOptions settings, Map properties){
+        for (Object entry : properties.entrySet()){
+            Map.Entry<?, ?> property = (Map.Entry<?, ?>) entry;
+            String key = property.getKey().toString();
+            if (key.startsWith(REGION_PREFIX)){
+                configure(key.substring(REGION_PREFIX.length()), property.getValue().toString().trim());
+            }
+        }
+
+        CachingProvider cachingProvider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+
+        return cachingProvider.getCacheManager(
+                URI.create("rproc-hibernate-" + CACHE_MANAGERS.incrementAndGet()),
+                cachingProvider.getDefaultClassLoader());
+    }
+
+    /**
+     * @param setting [region].[name]
+     * @param value
+     */
+    private void configure(String setting, String value){
+        int dot = setting.lastIndexOf('.');
+        if (dot <= 0) throw new CacheException(String.format("cache region setting is invalid: %s", setting));
+
+        CaffeineConfiguration<Object, Object> configuration = regions.computeIfAbsent(
+                setting.substring(0, dot), region -> newConfiguration());
+        String name = setting.substring(dot + 1);
+        switch (name){
+            case "maximum_size":
+                configuration.setMaximumSize(OptionalLong.of(Long.parseLong(value)));
+                break;
+            case "expire_after_write":
+                configuration.setExpireAfterWrite(OptionalLong.of(Duration.parse(value).toNanos()));
+                break;
+            default:
+                throw new CacheException(String.format("cache region setting is unknown: %s", setting));
+        }
+    }
+
+    /**
+     * hibernate caches disassembled immutable state, so entries are stored by reference, not copied
+     */
+    private static CaffeineConfiguration<Object, Object> newConfiguration(){
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setStoreByValue(false);
+
+        return configuration;
+    }
+
+    @Override
+    protected Cache<Object, Object> createCache(String regionName){
+        CaffeineConfiguration<Object, Object> configuration = regions.get(regionName);
+
+        return getCacheManager().createCache(
+                regionName,
+                configuration == null ? newConfiguration() : configuration);
+    }
+}
@@ -3,132 +3,264 @@
  */
 package com.heavenhr.rproc.rproc.controllers;
 
+import com.heavenhr.rproc.rproc.bulk.ApplicationBulkService;
+import com.heavenhr.rproc.rproc.bulk.BulkSubmissionResult;
+import com.heavenhr.rproc.rproc.bulk.BulkTransitionRequest;
+import com.heavenhr.rproc.rproc.bulk.BulkTransitionResult;
+import com.heavenhr.rproc.rproc.duplicates.SubmittedEmailIndex;
 import com.heavenhr.rproc.rproc.entities.Application;
 import com.heavenhr.rproc.rproc.entities.ApplicationPartial;
+import com.heavenhr.rproc.rproc.entities.ApplicationStatusHistoryItem;
+import com.heavenhr.rproc.rproc.entities.ApplicationSummary;
 import com.heavenhr.rproc.rproc.entities.Offer;
+import com.heavenhr.rproc.rproc.entities.OfferFunnel;
+import com.heavenhr.rproc.rproc.entities.VersionedId;
 import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
 import com.heavenhr.rproc.rproc.exceptions.ApplicationAlreadySubmittedException;
+import com.heavenhr.rproc.rproc.exceptions.ApplicationConcurrentlyModifiedException;
 import com.heavenhr.rproc.rproc.exceptions.ApplicationNotFoundException;
 import com.heavenhr.rproc.rproc.exceptions.ApplicationResumeAlreadySubmittedException;
 import com.heavenhr.rproc.rproc.exceptions.OfferNotFoundException;
-import com.heavenhr.rproc.rproc.messaging.RabbitNotificationService;
+import com.heavenhr.rproc.rproc.export.ApplicationExportService;
+import com.heavenhr.rproc.rproc.messaging.ApplicationStatusNotificationService;
+import com.heavenhr.rproc.rproc.pagination.KeysetCursor;
+import com.heavenhr.rproc.rproc.pagination.KeysetPage;
+import com.heavenhr.rproc.rproc.pagination.TimeKeysetCursor;
 import com.heavenhr.rproc.rproc.recourseassemblers.ApplicationResourceAssembler;
 import com.heavenhr.rproc.rproc.repositories.ApplicationRepository;
+import com.heavenhr.rproc.rproc.repositories.ApplicationStatusHistoryRepository;
 import com.heavenhr.rproc.rproc.repositories.OfferRepository;
 import com.heavenhr.rproc.rproc.storage.StorageService;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.AmqpException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.Resource;
 import org.springframework.hateoas.Resources;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.validation.Errors;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Spliterator;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
-
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
 
 @Slf4j
 @RestController
 @RequestMapping(path = "/applications", produces = MediaType.APPLICATION_JSON_VALUE)
 @CrossOrigin(origins = "*")
 public class ApplicationController {
+    /**
+     * number of attempts to change an application's status in case of concurrent changes
+     */
+    public static final int STATUS_PATCH_ATTEMPTS = 3;
+
     private final ApplicationRepository applicationRepository;
+    private final ApplicationStatusHistoryRepository applicationStatusHistoryRepository;
     private final ApplicationResourceAssembler applicationResourceAssembler;
     private final OfferRepository offerRepository;
-    private final RabbitNotificationService rabbitNotificationService;
+    private final ApplicationStatusNotificationService notificationService;
     private final StorageService storageService;
+    private final ApplicationExportService applicationExportService;
+    private final ApplicationBulkService applicationBulkService;
+    private final SubmittedEmailIndex submittedEmailIndex;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
     public ApplicationController(
             ApplicationRepository applicationRepository,
+            ApplicationStatusHistoryRepository applicationStatusHistoryRepository,
             ApplicationResourceAssembler applicationResourceAssembler,
             OfferRepository offerRepository,
-            RabbitNotificationService rabbitNotificationService,
-            StorageService storageService
+            ApplicationStatusNotificationService notificationService,
+            StorageService storageService,
+            ApplicationExportService applicationExportService,
+            ApplicationBulkService applicationBulkService,
+            SubmittedEmailIndex submittedEmailIndex,
+            PlatformTransactionManager transactionManager
     ){
         this.applicationRepository = applicationRepository;
+        this.applicationStatusHistoryRepository = applicationStatusHistoryRepository;
         this.applicationResourceAssembler = applicationResourceAssembler;
         this.offerRepository = offerRepository;
-        this.rabbitNotificationService = rabbitNotificationService;
+        this.notificationService = notificationService;
         this.storageService = storageService;
+        this.applicationExportService = applicationExportService;
+        this.applicationBulkService = applicationBulkService;
+        this.submittedEmailIndex = submittedEmailIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     /**
-     * get list of all applications.  GET /applications[?offerId=[offerId]]
+     * get list of all applications.
+     * GET /applications[?offerId=[offerId]][&applicationStatus=[status]][&cursor=[cursor]][&size=[size]]
      *
-     * with offerId specified applications' list for the offerId returned
+     * with offerId specified applications' list for the offerId returned,
+     * with applicationStatus specified only applications with the status are returned
+     *
+     * the list is paginated by application id (keyset pagination),
+     * if there are more applications "next" link with the cursor of the next page is returned
+     *
+     * the page's ETag is computed from applications' versions, if it matches If-None-Match 304 is returned
+     * and applications are not loaded
      *
      * @return
      */
     @GetMapping
-    public Resources<Resource<Application>> allApplications(
-            @RequestParam(value = "offerId", required = false) Offer offer){
+    public Resources<Resource<ApplicationSummary>> allApplications(
+            @RequestParam(value = "offerId", required = false) Offer offer,
+            @RequestParam(value = "applicationStatus", required = false) ApplicationStatus applicationStatus,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size,
+            WebRequest webRequest){
 
-        Spliterator<Application> applicationSpliterator;
+        long lastId = KeysetCursor.decode(cursor);
+        Pageable pageable = KeysetPage.request(size);
 
+        List<VersionedId> versions;
         if (offer == null){
-            applicationSpliterator = applicationRepository.findAll().spliterator();
+            versions = applicationStatus == null ?
+                    applicationRepository.findVersionsByIdGreaterThan(lastId, pageable) :
+                    applicationRepository.findVersionsByApplicationStatusAndIdGreaterThan(
+                            applicationStatus, lastId, pageable);
         }else{
-            applicationSpliterator = applicationRepository.findAllByOffer(offer).spliterator();
+            versions = applicationStatus == null ?
+                    applicationRepository.findVersionsByOfferAndIdGreaterThan(offer, lastId, pageable) :
+                    applicationRepository.findVersionsByOfferAndApplicationStatusAndIdGreaterThan(
+                            offer, applicationStatus, lastId, pageable);
+        }
+        if (webRequest.checkNotModified(ETags.of(versions))){
+            return null;
         }
 
-        List<Resource<Application>> resources = StreamSupport.stream(
-                    applicationSpliterator,
-                    false)
+        List<ApplicationSummary> applications;
+        if (offer == null){
+            applications = applicationStatus == null ?
+                    applicationRepository.findSummariesByIdGreaterThan(lastId, pageable) :
+                    applicationRepository.findSummariesByApplicationStatusAndIdGreaterThan(
+                            applicationStatus, lastId, pageable);
+        }else{
+            applications = applicationStatus == null ?
+                    applicationRepository.findSummariesByOfferAndIdGreaterThan(offer, lastId, pageable) :
+                    applicationRepository.findSummariesByOfferAndApplicationStatusAndIdGreaterThan(
+                            offer, applicationStatus, lastId, pageable);
+        }
+
+        KeysetPage<ApplicationSummary> page = KeysetPage.of(applications, size, ApplicationSummary::getId);
+
+        List<Resource<ApplicationSummary>> resources = page.getContent()
+                .stream()
                 .map(applicationResourceAssembler::toResource)
                 .collect(Collectors.toList());
 
-        return new Resources<>(
+        Resources<Resource<ApplicationSummary>> result = new Resources<>(
                 resources,
-                linkTo(methodOn(ApplicationController.class).allApplications(null)).withSelfRel());
+                KeysetPage.selfLink());
+        if (page.hasNext()){
+            result.add(page.nextLink());
+        }
+
+        return result;
     }
 
     /**
-     * get the total number of applications. GET /applications/total[?offerId=[offerId]]
+     * get the total number of applications. GET /applications/total[?offerId=[offerId]][&applicationStatus=[status]]
      *
      * if request param offerId is not set returns total number of applications,
      * or number of applications for the [offerId]
+     * if request param applicationStatus is set only applications with the status are counted
+     *
+     * counting is done by the database, no application is loaded
      *
      * @return
      */
     @GetMapping(path = "/total")
     public Map<String, Long> getNumberOfApplicationsTotal(
-            @RequestParam(value = "offerId", required = false) Offer offer){
+            @RequestParam(value = "offerId", required = false) Offer offer,
+            @RequestParam(value = "applicationStatus", required = false) ApplicationStatus applicationStatus){
 
-        Spliterator<Application> applicationSpliterator;
+        long total;
         if (offer == null){
-            applicationSpliterator = applicationRepository.findAll().spliterator();
+            total = applicationStatus == null ?
+                    applicationRepository.count() :
+                    applicationRepository.countByApplicationStatus(applicationStatus);
         }else{
-            applicationSpliterator = applicationRepository.findAllByOffer(offer).spliterator();
+            total = applicationStatus == null ?
+                    applicationRepository.countByOffer(offer) :
+                    applicationRepository.countByOfferAndApplicationStatus(offer, applicationStatus);
         }
 
-        long total = StreamSupport.stream(applicationSpliterator, false).count();
-
         return new HashMap<String, Long>(){{put("total", total);}};
     }
 
+    /**
+     * export applications as newline delimited json. GET /applications/export
+     *
+     * optional filters: offerId, applicationStatus and
+     * from/to - dates (inclusive, ISO format) when applications were submitted
+     *
+     * applications are streamed to the response, thus, the export size is not limited by memory
+     *
+     * @return
+     */
+    @GetMapping(path = "/export", produces = ApplicationExportService.NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportApplications(
+            @RequestParam(value = "offerId", required = false) Offer offer,
+            @RequestParam(value = "applicationStatus", required = false) ApplicationStatus applicationStatus,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+
+        LocalDateTime appliedFrom = from == null ? null : from.atStartOfDay();
+        LocalDateTime appliedTo = to == null ? null : to.plusDays(1).atStartOfDay();
+
+        StreamingResponseBody body = outputStream -> applicationExportService.export(
+                offer,
+                applicationStatus,
+                appliedFrom,
+                appliedTo,
+                outputStream);
+
+        return ResponseEntity
+                .ok()
+                .contentType(ApplicationExportService.NDJSON)
+                .body(body);
+    }
+
     /**
      * read a single application. GET /applications/[appId]
      *
+     * the application's version is its ETag, if it matches If-None-Match 304 is returned
+     * and the application is not loaded
+     *
      * @param appId
      * @return
      */
     @GetMapping(path = "/{appId:[\\d]+}")
     public ResponseEntity<Resource<Application>> getApplication(
-            @PathVariable(value = "appId") int appId){
+            @PathVariable(value = "appId") long appId,
+            WebRequest webRequest){
+        long version = applicationRepository
+                .findVersionById(appId)
+                .orElseThrow(() -> new ApplicationNotFoundException(appId));
+        if (webRequest.checkNotModified(ETags.of(version))){
+            return null;
+        }
+
         Application application = applicationRepository
                 .findById(appId)
                 .orElseThrow(() -> new ApplicationNotFoundException(appId));
@@ -136,6 +268,81 @@ public class ApplicationController {
         return ResponseEntity.ok(applicationResourceAssembler.toResource(application));
     }
 
+    /**
+     * read an application's status history. GET /applications/[appId]/history[?cursor=[cursor]][&size=[size]]
+     *
+     * the history is ordered by date and paginated the same way as the applications' list,
+     * history items are read from the history table directly, the application is not loaded
+     *
+     * @param appId
+     * @return
+     */
+    @GetMapping(path = "/{appId:[\\d]+}/history")
+    public Resources<Resource<ApplicationStatusHistoryItem>> getApplicationHistory(
+            @PathVariable(value = "appId") long appId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size){
+
+        TimeKeysetCursor position = TimeKeysetCursor.decode(cursor, TimeKeysetCursor.BEGINNING);
+        List<ApplicationStatusHistoryItem> history = applicationStatusHistoryRepository.findItemsByApplicationIdAfter(
+                appId,
+                position.getDateTime(),
+                position.getLastId(),
+                KeysetPage.request(size));
+        //  every application has at least one history item, thus, existence is checked only for empty pages
+        if (history.isEmpty() && !applicationRepository.existsById(appId)){
+            throw new ApplicationNotFoundException(appId);
+        }
+
+        return historyResources(history, size);
+    }
+
+    /**
+     * read all applications' status changes for a period. GET /applications/history?from=[date]&to=[date]
+     *
+     * from/to - dates (inclusive, ISO format) of the period,
+     * changes are ordered by date and paginated the same way as the applications' list
+     *
+     * @return
+     */
+    @GetMapping(path = "/history")
+    public Resources<Resource<ApplicationStatusHistoryItem>> getHistory(
+            @RequestParam(value = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size){
+
+        TimeKeysetCursor position = TimeKeysetCursor.decode(cursor, from.atStartOfDay());
+        List<ApplicationStatusHistoryItem> history = applicationStatusHistoryRepository.findItemsAfter(
+                position.getDateTime(),
+                position.getLastId(),
+                to.plusDays(1).atStartOfDay(),
+                KeysetPage.request(size));
+
+        return historyResources(history, size);
+    }
+
+    private Resources<Resource<ApplicationStatusHistoryItem>> historyResources(
+            List<ApplicationStatusHistoryItem> history,
+            int size){
+        KeysetPage<ApplicationStatusHistoryItem> page = KeysetPage.withCursor(
+                history,
+                size,
+                item -> TimeKeysetCursor.encode(item.getDateTime(), item.getId()));
+
+        List<Resource<ApplicationStatusHistoryItem>> resources = page.getContent()
+                .stream()
+                .map(applicationResourceAssembler::toResource)
+                .collect(Collectors.toList());
+
+        Resources<Resource<ApplicationStatusHistoryItem>> result = new Resources<>(resources, KeysetPage.selfLink());
+        if (page.hasNext()){
+            result.add(page.nextLink());
+        }
+
+        return result;
+    }
+
     /**
      * create an application. POST /applications
      *
@@ -143,6 +350,7 @@ public class ApplicationController {
      * @param errors
      * @return
      */
+    @Transactional
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<?> submitApplication(
             @Valid @RequestBody ApplicationPartial applicationPartial,
@@ -153,32 +361,88 @@ public class ApplicationController {
             );
         }
 
-        int offerId = applicationPartial.getOfferId();
+        long offerId = applicationPartial.getOfferId();
         Offer offer = offerRepository
-                .findById(offerId)
+                .findCachedById(offerId)
                 .orElseThrow(() -> new OfferNotFoundException(offerId));
 
         Application application = new Application(applicationPartial);
+        String email = application.getEmail();
+        //  the database is asked only if the index is not sure the application is new
+        if (submittedEmailIndex.mightContain(offerId, email)
+                && applicationRepository.existsByOfferIdAndEmail(offerId, email)){
+            throw new ApplicationAlreadySubmittedException();
+        }
+
         application.setOffer(offer);
         try{
-            application = applicationRepository.save(application);
+            //  flush right away to get unique constraint violation of concurrent submissions here, not on commit
+            application = applicationRepository.saveAndFlush(application);
         }catch (org.springframework.dao.DataIntegrityViolationException e){
             throw new ApplicationAlreadySubmittedException();
         }
+        submittedEmailIndex.put(offerId, email);
+
+        offerRepository.updateFunnel(offerId, OfferFunnel.ofTransition(null, application.getApplicationStatus()));
 
         Resource<Application> resource = applicationResourceAssembler.toResource(application);
-        resource.add(linkTo(methodOn(ApplicationController.class).getApplication(application.getId()))
-                .slash(application.getUploadHash())
-                .withRel("upload"));
+        resource.add(new Link(resource.getId().getHref() + "/" + application.getUploadHash(), "upload"));
 
         return ResponseEntity
                 .created(new URI(resource.getId().getHref()))
                 .body(resource);
     }
 
+    /**
+     * create many applications at once. POST /applications/bulk
+     *
+     * every item is processed independently, the result for each of them is returned in the same order
+     *
+     * @param applicationPartials
+     * @return
+     */
+    @PostMapping(path = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkSubmissionResult>> submitApplications(
+            @RequestBody List<ApplicationPartial> applicationPartials){
+
+        return ResponseEntity.ok(applicationBulkService.submit(applicationPartials));
+    }
+
+    /**
+     * progress status of many applications at once. PATCH /applications/status
+     *
+     * every application is processed independently, the result for each of them is returned in the same order
+     *
+     * all applications are changed in one transaction, if any of them is changed concurrently
+     * the whole bulk is retried up to STATUS_PATCH_ATTEMPTS times with fresh applications
+     *
+     * @param bulkTransitionRequest
+     * @return
+     */
+    @PatchMapping(path = "/status", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkTransitionResult>> patchApplications(
+            @RequestBody BulkTransitionRequest bulkTransitionRequest){
+        String applicationStatus = bulkTransitionRequest.getApplicationStatus();
+        if (applicationStatus == null) throw new IllegalArgumentException("Invalid application status");
+
+        for (int attempt = 1; ; attempt++){
+            try{
+                return ResponseEntity.ok(applicationBulkService.transition(
+                        ApplicationStatus.valueOf(applicationStatus.toUpperCase()),
+                        bulkTransitionRequest.getApplicationIds()));
+            }catch (OptimisticLockingFailureException e){
+                if (attempt >= STATUS_PATCH_ATTEMPTS){
+                    throw new ApplicationConcurrentlyModifiedException(bulkTransitionRequest.getApplicationIds());
+                }
+
+                log.info("applications are modified concurrently, bulk attempt {} failed", attempt);
+            }
+        }
+    }
+
     @PostMapping(path = "/{appId:[\\d]+}/{hashCode}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> submitResumeFile(
-            @PathVariable(value = "appId") int appId,
+            @PathVariable(value = "appId") long appId,
             @PathVariable(value = "hashCode") String hashCode,
             @RequestParam(value = "resume") MultipartFile resumeFile){
 
@@ -208,49 +472,73 @@ public class ApplicationController {
     /**
      * progress application status. PATCH /application/[appId]/status
      *
+     * concurrent changes of the same application are detected by its version,
+     * the change is retried up to STATUS_PATCH_ATTEMPTS times with the fresh application
+     *
      * @param appId
      * @param applicationPatch
      * @return
      */
     @PatchMapping(path = "/{appId:[\\d]+}/status", consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<?> patchApplication(
-            @PathVariable(value = "appId") int appId,
+            @PathVariable(value = "appId") long appId,
             @RequestBody Map<String, String> applicationPatch
     ){
+        String applicationStatus = applicationPatch.getOrDefault("applicationStatus", null);
+
+        for (int attempt = 1; ; attempt++){
+            try{
+                transactionTemplate.execute(transactionStatus -> changeStatus(appId, applicationStatus));
+                break;
+            }catch (OptimisticLockingFailureException e){
+                if (attempt >= STATUS_PATCH_ATTEMPTS){
+                    throw new ApplicationConcurrentlyModifiedException(appId);
+                }
+
+                log.info("application #{} is modified concurrently, attempt {} failed", appId, attempt);
+            }
+        }
+
+        applicationPatch.put("status", "updated");
+        return ResponseEntity.ok(applicationPatch);
+    }
+
+    /**
+     * should be called within a transaction
+     *
+     * @param appId
+     * @param applicationStatus
+     * @return updated application with its offer loaded
+     * @throws OptimisticLockingFailureException if the application has been changed since it was loaded
+     */
+    private Application changeStatus(long appId, String applicationStatus){
+        //  offer is needed for the funnel and the notification, thus, it is loaded right away
         Application application = applicationRepository
-                .findById(appId)
+                .findWithOfferById(appId)
                 .orElseThrow(() -> new ApplicationNotFoundException(appId));
 
-        String applicationStatus = applicationPatch.getOrDefault("applicationStatus", null);
         log.info(
                 "requested applicationStatus patch from '{}' to '{}'",
-                application.getApplicationStatus().toString(),
+                application.getApplicationStatus(),
                 applicationStatus);
         if (applicationStatus == null) throw new IllegalArgumentException("Invalid application status");
 
+        ApplicationStatus previousStatus = application.getApplicationStatus();
         application.setApplicationStatus(ApplicationStatus.valueOf(applicationStatus.toUpperCase()));
 
-        offerRepository.save(application.getOffer());
-        log.info(
-                "saving application '{}' with {} history items",
-                application,
-                application.getApplicationStatusHistories().size());
-        applicationRepository.save(application);
+        //  application is managed, thus, it is not merged (merge would copy not loaded histories' additions),
+        //  but flushed right away to get version conflict here, not on commit
+        log.info("saving application '{}'", application);
+        applicationRepository.flush();
+        offerRepository.updateFunnel(
+                application.getOffer().getId(),
+                OfferFunnel.ofTransition(previousStatus, application.getApplicationStatus()));
 
-        try{
-            log.debug("trying to send notification to the application: '{}'", application);
-            rabbitNotificationService.sendNotification(application);
-        }catch (AmqpException e){
-            log.error(
-                    "couldn't sent notification to the application '{}' due to exception: '{}'",
-                    application,
-                    e.getMessage());
-            //  TODO do proper error handling in case of problem with rabbintmq server
-            //  sending notification the same as using rabbitmq is auxiliary functionality at this point
-            //  this is why all exceptions from AMQP just suppressed
-        }
+        //  the notification is saved to the outbox in this transaction or published once it is committed,
+        //  in both cases the broker's latency and failures do not affect the request
+        log.debug("trying to send notification to the application: '{}'", application);
+        notificationService.sendNotification(application);
 
-        applicationPatch.put("status", "updated");
-        return ResponseEntity.ok(applicationPatch);
+        return application;
     }
 }
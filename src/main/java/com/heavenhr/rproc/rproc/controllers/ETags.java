@@ -0,0 +1,36 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.controllers;
+
+import com.heavenhr.rproc.rproc.entities.VersionedId;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Strong ETags built from entities' versions.
+ *
+ * A single resource's ETag is its version,
+ * a page's ETag is a digest of ids and versions of all the page's rows
+ */
+final class ETags {
+    private ETags(){
+    }
+
+    static String of(long version){
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * @param versions ids and versions of the page's rows including the one used to check for the next page
+     * @return
+     */
+    static String of(List<VersionedId> versions){
+        StringBuilder stringBuilder = new StringBuilder(versions.size() * 8);
+        versions.forEach(v -> stringBuilder.append(v.getId()).append(':').append(v.getVersion()).append(';'));
+
+        return "\"" + DigestUtils.md5DigestAsHex(stringBuilder.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
@@ -4,6 +4,7 @@
 package com.heavenhr.rproc.rproc.controllers;
 
 import com.heavenhr.rproc.rproc.exceptions.ApplicationAlreadySubmittedException;
+import com.heavenhr.rproc.rproc.exceptions.ApplicationConcurrentlyModifiedException;
 import com.heavenhr.rproc.rproc.exceptions.ApplicationNotFoundException;
 import com.heavenhr.rproc.rproc.exceptions.OfferNotFoundException;
 import org.springframework.http.HttpStatus;
@@ -52,4 +53,12 @@ public class ExceptionHandler {
         );
     }
 
+    @org.springframework.web.bind.annotation.ExceptionHandler(value = ApplicationConcurrentlyModifiedException.class)
+    public ResponseEntity<ErrorResponse> applicationConcurrentlyModifiedHandler(ApplicationConcurrentlyModifiedException e){
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(
+                    ErrorResponse.buildFromErrorMessage(e.getMessage())
+                );
+    }
 }
@@ -3,16 +3,21 @@
  */
 package com.heavenhr.rproc.rproc.controllers;
 
+import com.heavenhr.rproc.rproc.caching.CacheConfig;
 import com.heavenhr.rproc.rproc.entities.Offer;
+import com.heavenhr.rproc.rproc.entities.OfferFunnel;
 import com.heavenhr.rproc.rproc.exceptions.OfferAlreadySubmittedException;
 import com.heavenhr.rproc.rproc.exceptions.OfferNotFoundException;
-import com.heavenhr.rproc.rproc.messaging.RabbitNotificationService;
+import com.heavenhr.rproc.rproc.pagination.KeysetCursor;
+import com.heavenhr.rproc.rproc.pagination.KeysetPage;
 import com.heavenhr.rproc.rproc.recourseassemblers.ApplicationResourceAssembler;
 import com.heavenhr.rproc.rproc.recourseassemblers.OfferResourceAssembler;
 import com.heavenhr.rproc.rproc.repositories.ApplicationRepository;
 import com.heavenhr.rproc.rproc.repositories.OfferRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.data.domain.Pageable;
 import org.springframework.hateoas.Resource;
 import org.springframework.hateoas.Resources;
 import org.springframework.http.HttpStatus;
@@ -20,16 +25,15 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.Errors;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
-
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
 
 @Slf4j
 @RestController
@@ -45,7 +49,6 @@ public class OfferController {
     public OfferController(
             OfferRepository offerRepository,
             ApplicationRepository applicationRepository,
-            RabbitNotificationService rabbitNotificationService,
             OfferResourceAssembler offerResourceAssembler,
             ApplicationResourceAssembler applicationResourceAssembler){
 
@@ -56,40 +59,111 @@ public class OfferController {
     }
 
     /**
-     * get list of all offers.  GET /offers
+     * get list of all offers.  GET /offers[?cursor=[cursor]][&size=[size]]
+     *
+     * the list is paginated by offer id (keyset pagination),
+     * if there are more offers "next" link with the cursor of the next page is returned
+     *
+     * the page's ETag is computed from offers' versions, if it matches If-None-Match 304 is returned
+     * and offers are not loaded
+     *
      * @return
      */
     @GetMapping
-    public Resources<Resource<Offer>> allOffers(){
-        List<Resource<Offer>> resources = StreamSupport.stream(offerRepository.findAll().spliterator(), false)
+    public Resources<Resource<Offer>> allOffers(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size,
+            WebRequest webRequest){
+
+        long lastId = KeysetCursor.decode(cursor);
+        Pageable pageable = KeysetPage.request(size);
+
+        if (webRequest.checkNotModified(ETags.of(offerRepository.findVersionsByIdGreaterThan(lastId, pageable)))){
+            return null;
+        }
+
+        List<Offer> offers = offerRepository.findAllByIdGreaterThanOrderByIdAsc(lastId, pageable);
+
+        KeysetPage<Offer> page = KeysetPage.of(offers, size, Offer::getId);
+        setFunnels(page.getContent());
+
+        List<Resource<Offer>> resources = page.getContent()
+                .stream()
                 .map(offerResourceAssembler::toResource)
                 .collect(Collectors.toList());
 
-        return new Resources<>(
+        Resources<Resource<Offer>> result = new Resources<>(
                 resources,
-                linkTo(methodOn(OfferController.class).allOffers()).withSelfRel());
+                KeysetPage.selfLink());
+        if (page.hasNext()){
+            result.add(page.nextLink());
+        }
+
+        return result;
     }
 
     /**
      * read a single offer. GET /offers/[id]
      *
+     * the offer's version is its ETag, if it matches If-None-Match 304 is returned and the offer is not loaded
+     *
      * @param offerId
      * @return
      */
     @GetMapping(path = "/{offerId:[\\d]+}")
-    public ResponseEntity<?> getOfferById(@PathVariable(value = "offerId") int offerId){
+    public ResponseEntity<?> getOfferById(
+            @PathVariable(value = "offerId") long offerId,
+            WebRequest webRequest){
+        long version = offerRepository.findVersionById(offerId).orElseThrow(() -> new OfferNotFoundException(offerId));
+        if (webRequest.checkNotModified(ETags.of(version))){
+            return null;
+        }
+
         Offer offer = offerRepository.findById(offerId).orElseThrow(() -> new OfferNotFoundException(offerId));
+        offer.setFunnel(offerRepository.findFunnelById(offerId).orElseGet(OfferFunnel::new));
 
         return ResponseEntity.ok(offerResourceAssembler.toResource(offer));
     }
 
+    /**
+     * funnels are not loaded with offers, they are read for the whole page in a single statement
+     *
+     * @param offers
+     */
+    private void setFunnels(List<Offer> offers){
+        if (offers.isEmpty()) return;
+
+        Map<Long, OfferFunnel> funnels = offerRepository
+                .findFunnelsByOfferIdIn(offers.stream().map(Offer::getId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(OfferFunnel::getOfferId, Function.identity()));
+        offers.forEach(offer -> offer.setFunnel(funnels.getOrDefault(offer.getId(), new OfferFunnel())));
+    }
+
+    /**
+     * read offer's applications counters. GET /offers/[id]/funnel
+     *
+     * @param offerId
+     * @return
+     */
+    @GetMapping(path = "/{offerId:[\\d]+}/funnel")
+    public ResponseEntity<OfferFunnel> getOfferFunnel(@PathVariable(value = "offerId") long offerId){
+        OfferFunnel offerFunnel = offerRepository
+                .findFunnelById(offerId)
+                .orElseThrow(() -> new OfferNotFoundException(offerId));
+
+        return ResponseEntity.ok(offerFunnel);
+    }
+
     /**
      * creates an offer. POST /offers
+     * Cached offers are evicted as offers' data has changed
      *
      * @param offer
      * @param errors
      * @return
      */
+    @CacheEvict(cacheNames = CacheConfig.OFFERS, allEntries = true)
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<?> submitOffer(
             @Valid @RequestBody Offer offer,
@@ -0,0 +1,26 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.converters;
+
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Converts request parameters to ApplicationStatus ignoring the case,
+ * the same way PATCH /applications/[appId]/status does
+ */
+@Component
+public class ApplicationStatusConverter implements Converter<String, ApplicationStatus> {
+    @Override
+    public ApplicationStatus convert(String status){
+        if (status == null || status.trim().isEmpty()) return null;
+
+        try{
+            return ApplicationStatus.valueOf(status.trim().toUpperCase());
+        }catch (IllegalArgumentException e){
+            throw new IllegalArgumentException(String.format("provided application status is invalid: %s", status));
+        }
+    }
+}
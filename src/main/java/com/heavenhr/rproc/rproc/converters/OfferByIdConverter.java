@@ -26,18 +26,18 @@ public class OfferByIdConverter implements Converter<String, Offer> {
     public Offer convert(String id){
         if (id == null) return null;
 
-        int offerId;
+        long offerId;
         try{
-            offerId = Integer.parseInt(id);
+            offerId = Long.parseLong(id);
         }catch (NumberFormatException e){
             throw new IllegalArgumentException(String.format("provided offer id parameter is invalid: %s", id));
         }
 
         if (offerId <= 0) throw new OfferNotFoundException(offerId);
 
-        Offer offer = offerRepository.findById(offerId).orElseThrow(() -> new OfferNotFoundException(offerId));
+        Offer offer = offerRepository.findCachedById(offerId).orElseThrow(() -> new OfferNotFoundException(offerId));
 
-        log.info("Converting id#{}->Offer '{}'", offerId, offer);
+        log.info("Converting id#{}->Offer '{}'", offerId, offer.getJobTitle());
 
         return offer;
     }
@@ -0,0 +1,103 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.duplicates;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe bloom filter of strings.
+ * mightContain() never returns false for a put value, it may return true for a value never put
+ * with the probability the filter is created with (as long as the number of put values does not exceed the expected one)
+ */
+public class BloomFilter {
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final int numberOfBits;
+    private final int numberOfHashes;
+
+    /**
+     * @param expectedInsertions
+     * @param falsePositiveProbability
+     * @throws IllegalArgumentException if parameters are out of range
+     */
+    public BloomFilter(int expectedInsertions, double falsePositiveProbability){
+        if (expectedInsertions < 1){
+            throw new IllegalArgumentException(String.format("expected insertions is invalid: %d", expectedInsertions));
+        }
+        if (!(falsePositiveProbability > 0 && falsePositiveProbability < 1)){
+            throw new IllegalArgumentException(
+                    String.format("false positive probability is invalid: %s", falsePositiveProbability));
+        }
+
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (LN2 * LN2));
+        //  whole words only
+        bits = Math.min((bits + 63) / 64 * 64, Integer.MAX_VALUE / 64 * 64);
+
+        this.numberOfBits = (int) bits;
+        this.numberOfHashes = Math.max(1, (int) Math.round((double) numberOfBits / expectedInsertions * LN2));
+        this.words = new AtomicLongArray(numberOfBits / 64);
+    }
+
+    public int getNumberOfBits(){
+        return numberOfBits;
+    }
+
+    public int getNumberOfHashes(){
+        return numberOfHashes;
+    }
+
+    public void put(String value){
+        long hash = hash(value);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numberOfHashes; i++){
+            int bit = index(hash1 + i * hash2);
+            int word = bit >>> 6;
+            long mask = 1L << bit;
+
+            long current;
+            do{
+                current = words.get(word);
+                if ((current & mask) != 0) break;
+            }while (!words.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    public boolean mightContain(String value){
+        long hash = hash(value);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numberOfHashes; i++){
+            int bit = index(hash1 + i * hash2);
+            if ((words.get(bit >>> 6) & (1L << bit)) == 0) return false;
+        }
+
+        return true;
+    }
+
+    private int index(int combinedHash){
+        return (combinedHash & Integer.MAX_VALUE) % numberOfBits;
+    }
+
+    /**
+     * 64-bit FNV-1a of the string's chars spread with murmur3's finalizer,
+     * its halves are used as two independent hashes (Kirsch-Mitzenmacher)
+     */
+    private static long hash(String value){
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++){
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+}
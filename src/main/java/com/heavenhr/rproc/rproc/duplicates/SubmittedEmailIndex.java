@@ -0,0 +1,91 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.duplicates;
+
+import com.heavenhr.rproc.rproc.entities.ApplicationPartial;
+import com.heavenhr.rproc.rproc.repositories.ApplicationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Emails applications are submitted with, a bloom filter per offer.
+ *
+ * "Definitely new" (offer, email) pairs are told without querying the database,
+ * so that duplicates are looked up by the (offer, email) unique index only when a pair might be submitted.
+ * Until the index is warmed up from the database every pair might be submitted.
+ *
+ * The index is local to the instance: applications submitted by other instances are not put here,
+ * thus, the unique constraint remains the final check
+ */
+@Slf4j
+@Service
+public class SubmittedEmailIndex {
+    private final ApplicationRepository applicationRepository;
+    private final int expectedEmailsPerOffer;
+    private final double falsePositiveProbability;
+
+    private final ConcurrentMap<Long, BloomFilter> filters = new ConcurrentHashMap<>();
+
+    private volatile boolean warmedUp = false;
+
+    @Autowired
+    public SubmittedEmailIndex(
+            ApplicationRepository applicationRepository,
+            @Value("${rproc.duplicates.expected-emails-per-offer:10000}") int expectedEmailsPerOffer,
+            @Value("${rproc.duplicates.false-positive-probability:0.01}") double falsePositiveProbability){
+        this.applicationRepository = applicationRepository;
+        this.expectedEmailsPerOffer = expectedEmailsPerOffer;
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    /**
+     * puts all submitted applications' emails, applications submitted meanwhile are put as well
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUp(){
+        AtomicLong count = new AtomicLong();
+        try (Stream<ApplicationPartial> submitted = applicationRepository.streamSubmitted()){
+            submitted.forEach(applicationPartial -> {
+                put(applicationPartial.getOfferId(), applicationPartial.getEmail());
+                count.incrementAndGet();
+            });
+        }
+
+        warmedUp = true;
+        log.info("{} submitted emails of {} offers indexed", count.get(), filters.size());
+    }
+
+    public boolean isWarmedUp(){
+        return warmedUp;
+    }
+
+    public void put(long offerId, String email){
+        filters.computeIfAbsent(offerId, id -> new BloomFilter(expectedEmailsPerOffer, falsePositiveProbability))
+                .put(email);
+    }
+
+    /**
+     * @param offerId
+     * @param email
+     * @return false if no application is submitted with the email to the offer, true if it might be submitted
+     */
+    public boolean mightContain(long offerId, String email){
+        if (!warmedUp) return true;
+
+        BloomFilter filter = filters.get(offerId);
+
+        return filter != null && filter.mightContain(email);
+    }
+}
@@ -10,6 +10,10 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 import org.springframework.hateoas.core.Relation;
 
 import javax.persistence.*;
@@ -28,12 +32,29 @@ import java.util.UUID;
 @Table(
         name = "applications",
         uniqueConstraints = @UniqueConstraint(
-                columnNames = {"offer_id", "email"})
+                columnNames = {"offer_id", "email"}),
+        //  an offer's applications with a status, in keyset pagination order
+        indexes = @Index(
+                name = "idx_applications_offer_status",
+                columnList = "offer_id, applicationStatus, id")
 )
 public class Application {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
-    private int id;
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "applications_seq")
+    @GenericGenerator(
+            name = "applications_seq",
+            strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "applications_seq"))
+    private long id;
+
+    /**
+     * incremented on every change, used as the ETag of the application
+     */
+    @JsonIgnore
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    @Setter(AccessLevel.NONE)
+    private long version;
 
     @NotBlank(message = "Candidate email cannot be empty")
     @Email(message = "Candidate email is invalid")
@@ -74,92 +95,64 @@ public class Application {
         this.email = applicationPartial.getEmail();
     }
     /**
+     * Keeps the offer's applications in sync only if they are already loaded,
+     * lazy (not initialized) collection is never loaded here.
+     * Thus, submitting an application costs the same regardless of the offer's number of applications
      *
      * @param offer if null removes previous link
      */
     public void setOffer(Offer offer){
-        if (offer == null){
-            if (this.offer != null){
-                //  remove previous link
-                log.info("remove application '{}' from the offer '{}'", this, this.offer);
-
-                log.info("before {}", this.offer.getApplications().size());
-                this.offer.getApplications().remove(this);
-                log.info("after {}", this.offer.getApplications().size());
-            }
+        //  in this case nothing to do
+        if (this.offer == offer) return;
 
-            this.offer = null;
-        }else{
-            //  in this case nothing to do
-            if (this.offer == offer) return;
+        if (this.offer != null && isApplicationsLoaded(this.offer)){
+            //  remove link to this application from the previous offer
+            this.offer.getApplications().remove(this);
+        }
 
-            if (this.offer != null){
-                //  remove link to this account from previous currency object
-                this.offer.getApplications().remove(this);
-            }
+        this.offer = offer;
 
-            this.offer = offer;
+        if (this.offer != null && isApplicationsLoaded(this.offer)){
             this.offer.getApplications().add(this);
         }
     }
 
     /**
-     * Possible flows are:
+     * checks whether the offer's applications are in memory without initializing neither the offer nor its applications
      *
-     *  - null -> APPLIED;
-     *  - APPLIED -> INVITED;
-     *  - APPLIED -> REJECTED;
-     *  - INVITED -> REJECTED;
-     *  - INVITED -> HIRED
+     * @param offer
+     * @return
+     */
+    private static boolean isApplicationsLoaded(Offer offer){
+        return Hibernate.isInitialized(offer) && Hibernate.isInitialized(offer.getApplications());
+    }
+
+    /**
+     * Possible flows are described in ApplicationStatus
      *
      * @param applicationStatus
      * @throws IllegalArgumentException if status is incorrect based on flow
      */
     public void setApplicationStatus(ApplicationStatus applicationStatus){
-        if (this.applicationStatus == applicationStatus){
-            String error = String.format("status is already set to '%s'", applicationStatus.toString());
-            log.warn(error);
-            throw new IllegalArgumentException(error);
-        };
-
-        if (this.applicationStatus == null){
-            if (applicationStatus != ApplicationStatus.APPLIED){
-                log.warn("only '{}' is acceptable at this point", ApplicationStatus.APPLIED);
-                throw new IllegalArgumentException("Application status is incorrect");
+        if (!ApplicationStatus.isTransitionAllowed(this.applicationStatus, applicationStatus)){
+            if (applicationStatus != null && this.applicationStatus == applicationStatus){
+                String error = String.format("status is already set to '%s'", applicationStatus.toString());
+                log.warn(error);
+                throw new IllegalArgumentException(error);
             }
-        }else if (this.applicationStatus == ApplicationStatus.APPLIED) {
-            if ((applicationStatus != ApplicationStatus.INVITED) &&
-                    (applicationStatus != ApplicationStatus.REJECTED)) {
-                log.warn(
-                        "only '{}' or '{}' are acceptable at this point",
-                        ApplicationStatus.APPLIED,
-                        ApplicationStatus.REJECTED);
-                throw new IllegalArgumentException("Application status is incorrect");
-            }
-        }else if (this.applicationStatus == ApplicationStatus.INVITED){
-            if ((applicationStatus != ApplicationStatus.HIRED) &&
-                    (applicationStatus != ApplicationStatus.REJECTED)) {
-                log.warn(
-                        "only '{}' or '{}' are acceptable at this point",
-                        ApplicationStatus.HIRED,
-                        ApplicationStatus.REJECTED);
-                throw new IllegalArgumentException("Application status is incorrect");
-            }
-        }else{
+
+            log.warn("status cannot be changed from '{}' to '{}'", this.applicationStatus, applicationStatus);
             throw new IllegalArgumentException("Application status is incorrect");
         }
 
-        log.info("application status changed from '{}' to '{}'", this.applicationStatus, applicationStatus);
+        log.debug("application status changed from '{}' to '{}'", this.applicationStatus, applicationStatus);
         this.applicationStatus = applicationStatus;
 
-        log.info("history items for application status: {}", this.getApplicationStatusHistories().size());
-        //  status changed, thus, history needs to be created
+        //  status changed, thus, history needs to be created.
+        //  Adding to not loaded histories does not initialize them, the history is persisted by cascade
         ApplicationStatusHistory applicationStatusHistory = new ApplicationStatusHistory();
         applicationStatusHistory.setApplicationStatus(this.applicationStatus);
         applicationStatusHistory.setApplication(this);
-
-        log.info("history items for application status: {}", this.getApplicationStatusHistories().size());
-        this.getApplicationStatusHistories().forEach(h -> log.info("history item '{}'", h));
     }
 
     @PreRemove
@@ -194,7 +187,7 @@ public class Application {
 
     @Override
     public int hashCode(){
-        return this.id;
+        return Long.hashCode(this.id);
     }
 
     @Override
@@ -29,7 +29,12 @@ public class ApplicationPartial {
     private String email;
 
     @Min(value = 1, message = "Offer id is invalid")
-    private int offerId;
+    private long offerId;
+
+    public ApplicationPartial(String email, long offerId){
+        this.email = email;
+        this.offerId = offerId;
+    }
 
     /**
      * Creates instance from Application
@@ -0,0 +1,21 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.entities;
+
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import lombok.Data;
+
+/**
+ * Number of applications in a status, selected by repositories' queries without loading applications
+ */
+@Data
+public class ApplicationStatusCount {
+    private final ApplicationStatus applicationStatus;
+    private final long count;
+
+    public ApplicationStatusCount(ApplicationStatus applicationStatus, long count){
+        this.applicationStatus = applicationStatus;
+        this.count = count;
+    }
+}
@@ -6,6 +6,9 @@ package com.heavenhr.rproc.rproc.entities;
 import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -14,11 +17,23 @@ import java.time.LocalDateTime;
 @Slf4j
 @Data
 @Entity
-@Table(name = "app_status_history")
+@Table(
+        name = "app_status_history",
+        indexes = {
+                //  an application's history in chronological order
+                @Index(name = "idx_app_status_history_application_date", columnList = "application_id, dateTime"),
+                //  all applications' histories for a period in chronological order
+                @Index(name = "idx_app_status_history_date", columnList = "dateTime, id")
+        }
+)
 public class ApplicationStatusHistory {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
-    private int id;
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "app_status_history_seq")
+    @GenericGenerator(
+            name = "app_status_history_seq",
+            strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "app_status_history_seq"))
+    private long id;
 
     @NotNull(message = "Event date cannot be null")
     @Column(nullable = false)
@@ -0,0 +1,34 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.entities;
+
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import lombok.Data;
+import org.springframework.hateoas.core.Relation;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read only view of ApplicationStatusHistory.
+ * It is created by repositories' queries directly, thus, neither the application nor its histories are loaded
+ */
+@Relation(value = "historyItem", collectionRelation = "history")
+@Data
+public class ApplicationStatusHistoryItem {
+    private final long id;
+    private final LocalDateTime dateTime;
+    private final ApplicationStatus applicationStatus;
+    private final long applicationId;
+
+    public ApplicationStatusHistoryItem(
+            long id,
+            LocalDateTime dateTime,
+            ApplicationStatus applicationStatus,
+            long applicationId){
+        this.id = id;
+        this.dateTime = dateTime;
+        this.applicationStatus = applicationStatus;
+        this.applicationId = applicationId;
+    }
+}
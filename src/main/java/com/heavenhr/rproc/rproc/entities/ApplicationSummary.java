@@ -0,0 +1,33 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.entities;
+
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import lombok.Data;
+import org.springframework.hateoas.core.Relation;
+
+import java.util.UUID;
+
+/**
+ * Read only view of Application used for lists and exports.
+ * This is not an entity, it is created by repositories' queries directly,
+ * thus, neither Application nor its associations are loaded
+ */
+@Relation(value = "application", collectionRelation = "applications")
+@Data
+public class ApplicationSummary {
+    private final long id;
+    private final String email;
+    private final UUID uploadHash;
+    private final ApplicationStatus applicationStatus;
+    private final long offerId;
+
+    public ApplicationSummary(long id, String email, UUID uploadHash, ApplicationStatus applicationStatus, long offerId){
+        this.id = id;
+        this.email = email;
+        this.uploadHash = uploadHash;
+        this.applicationStatus = applicationStatus;
+        this.offerId = offerId;
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.entities;
+
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import com.heavenhr.rproc.rproc.messaging.Notification;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A notification saved in the same transaction as the status change it is about,
+ * NotificationOutboxRelay publishes it and sets sentAt.
+ *
+ * The application is referenced by id only, the entry is a copy of the notification
+ */
+@Data
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Entity
+@Table(
+        name = "notification_outbox",
+        indexes = {
+                //  pending entries in the order they are saved
+                @Index(name = "idx_notification_outbox_sent", columnList = "sentAt, id"),
+                //  an application's entries, used to find the latest one while coalescing
+                @Index(name = "idx_notification_outbox_application", columnList = "applicationId, id")
+        }
+)
+public class NotificationOutboxEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_outbox_seq")
+    @GenericGenerator(
+            name = "notification_outbox_seq",
+            strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "notification_outbox_seq"))
+    private long id;
+
+    @Column(nullable = false)
+    private long applicationId;
+
+    @Enumerated
+    @Column(nullable = false)
+    private ApplicationStatus applicationStatus;
+
+    @Column(nullable = false)
+    private String email;
+
+    @Column(nullable = false, length = 1024)
+    private String body;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * null until the broker confirms the notification
+     */
+    private LocalDateTime sentAt;
+
+    public NotificationOutboxEntry(Notification notification){
+        this.applicationId = notification.getApplicationId();
+        this.applicationStatus = notification.getApplicationStatus();
+        this.email = notification.getEmail();
+        this.body = notification.getBody();
+    }
+
+    public Notification toNotification(){
+        return new Notification(applicationId, applicationStatus, email, body);
+    }
+
+    @PrePersist
+    private void prePersist(){
+        if (createdAt == null){
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
@@ -5,16 +5,26 @@ package com.heavenhr.rproc.rproc.entities;
 
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.heavenhr.rproc.rproc.caching.CacheConfig;
 import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 import org.springframework.hateoas.core.Relation;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Relation(value = "offer", collectionRelation = "offers")
@@ -22,10 +32,25 @@ import java.util.List;
 @NoArgsConstructor(access = AccessLevel.PUBLIC)
 @Entity
 @Table(name = "offers")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConfig.OFFER_REGION)
 public class Offer {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
-    private int id;
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "offers_seq")
+    @GenericGenerator(
+            name = "offers_seq",
+            strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "offers_seq"))
+    private long id;
+
+    /**
+     * incremented on every change, the offer's ETag is computed from it and the funnel's version
+     */
+    @JsonIgnore
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    @Setter(AccessLevel.NONE)
+    private long version;
 
     @NotNull(message = "Job title cannot be empty")
     @Size(min = 5, max = 35, message = "Job title must be from 5 to 35 characters long")
@@ -37,9 +62,24 @@ public class Offer {
     @Column(nullable = false)
     private LocalDate startDate;
 
+    /**
+     * applications' counters, maintained by OfferRepository.updateFunnel().
+     * They are not loaded with the offer, so a cached offer is read without any statement:
+     * null for a loaded offer until set from OfferRepository.findFunnelById() or findFunnelsByOfferIdIn()
+     */
     @Transient
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private OfferFunnel funnel = new OfferFunnel(this);
+
+    /**
+     * the funnel's row, persisted and removed with the offer, it is lazy and never read through the offer
+     */
+    @JsonIgnore
+    @OneToMany(mappedBy = "offer", cascade = {CascadeType.PERSIST, CascadeType.REMOVE})
+    @Getter(AccessLevel.NONE)
     @Setter(AccessLevel.NONE)
-    private int numberOfApplications = 0;
+    @ToString.Exclude
+    private List<OfferFunnel> funnelRow = new ArrayList<>(Collections.singletonList(funnel));
 
     @JsonIgnore
     @OneToMany(mappedBy = "offer", cascade = CascadeType.PERSIST)
@@ -53,13 +93,23 @@ public class Offer {
         }
     }
 
+    @PostLoad
+    private void postLoad(){
+        funnel = null;
+    }
+
+    /**
+     * does not initialize lazy applications' collection, the funnel should be set
+     *
+     * @return
+     */
     public int getNumberOfApplications(){
-        return applications.size();
+        return funnel.getTotal();
     }
 
     @Override
     public int hashCode(){
-        return this.id;
+        return Long.hashCode(this.id);
     }
 
     @Override
@@ -0,0 +1,153 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.persistence.*;
+
+/**
+ * Per offer counters of applications: total number and number of applications in each status.
+ *
+ * Counters are maintained incrementally when applications are submitted or change their statuses,
+ * so the offer's applications never need to be loaded to get them.
+ * Counters are kept in their own table, which is not cached, so updating them leaves the cached offer untouched.
+ * The same class is used as a delta for updating counters (see OfferRepository.updateFunnel())
+ */
+@Data
+@NoArgsConstructor(access = AccessLevel.PUBLIC)
+@Entity
+@Table(name = "offer_funnels")
+public class OfferFunnel {
+    @Id
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @Setter(AccessLevel.NONE)
+    private long offerId;
+
+    @JsonIgnore
+    @MapsId
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "offer_id")
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @Setter(AccessLevel.NONE)
+    private Offer offer;
+
+    /**
+     * incremented on every update, the offer's ETag includes it
+     */
+    @JsonIgnore
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    @EqualsAndHashCode.Exclude
+    @Setter(AccessLevel.NONE)
+    private long version;
+
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    private int total;
+
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    private int applied;
+
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    private int invited;
+
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    private int rejected;
+
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    private int hired;
+
+    /**
+     * empty counters of the offer, they are persisted with the offer
+     *
+     * @param offer
+     */
+    public OfferFunnel(Offer offer){
+        this.offer = offer;
+    }
+
+    public OfferFunnel(int total, int applied, int invited, int rejected, int hired){
+        this.total = total;
+        this.applied = applied;
+        this.invited = invited;
+        this.rejected = rejected;
+        this.hired = hired;
+    }
+
+    /**
+     * creates a delta for an application status change
+     *
+     * @param from previous status, null for a just submitted application
+     * @param to new status
+     * @return
+     */
+    public static OfferFunnel ofTransition(ApplicationStatus from, ApplicationStatus to){
+        OfferFunnel delta = new OfferFunnel();
+        delta.addTransition(from, to);
+
+        return delta;
+    }
+
+    /**
+     * accumulates an application status change
+     *
+     * @param from previous status, null for a just submitted application
+     * @param to new status
+     */
+    public void addTransition(ApplicationStatus from, ApplicationStatus to){
+        if (from == null){
+            this.total++;
+        }else{
+            add(from, -1);
+        }
+
+        add(to, 1);
+    }
+
+    /**
+     * accumulates applications counted in a status
+     *
+     * @param applicationStatus null for applications without a status, they are counted in total only
+     * @param count
+     */
+    public void addApplications(ApplicationStatus applicationStatus, int count){
+        this.total += count;
+        if (applicationStatus != null){
+            add(applicationStatus, count);
+        }
+    }
+
+    public int getCount(ApplicationStatus applicationStatus){
+        switch (applicationStatus){
+            case APPLIED: return this.applied;
+            case INVITED: return this.invited;
+            case REJECTED: return this.rejected;
+            case HIRED: return this.hired;
+            default: throw new IllegalArgumentException("Application status is incorrect");
+        }
+    }
+
+    @JsonIgnore
+    public boolean isEmpty(){
+        return total == 0 && applied == 0 && invited == 0 && rejected == 0 && hired == 0;
+    }
+
+    private void add(ApplicationStatus applicationStatus, int value){
+        switch (applicationStatus){
+            case APPLIED: this.applied += value; break;
+            case INVITED: this.invited += value; break;
+            case REJECTED: this.rejected += value; break;
+            case HIRED: this.hired += value; break;
+            default: throw new IllegalArgumentException("Application status is incorrect");
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.entities;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * sequence generator with pooled-lo optimizer: the sequence is called once per block of ids,
+ * thus, inserts do not wait for the sequence and may be batched.
+ * Block size is rproc.id.increment_size hibernate property (spring.jpa.properties.* in application.properties),
+ * the sequence is created with the same increment
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+    public static final String STRATEGY = "com.heavenhr.rproc.rproc.entities.PooledSequenceGenerator";
+
+    public static final String INCREMENT_SIZE_SETTING = "rproc.id.increment_size";
+
+    public static final int DEFAULT_INCREMENT_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        int incrementSize = ConfigurationHelper.getInt(
+                INCREMENT_SIZE_SETTING,
+                serviceRegistry.getService(ConfigurationService.class).getSettings(),
+                DEFAULT_INCREMENT_SIZE);
+
+        params.putIfAbsent(INCREMENT_PARAM, String.valueOf(incrementSize));
+        params.putIfAbsent(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+
+        super.configure(type, params, serviceRegistry);
+    }
+}
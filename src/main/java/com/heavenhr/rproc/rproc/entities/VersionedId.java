@@ -0,0 +1,20 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.entities;
+
+import lombok.Data;
+
+/**
+ * Entity's id and version, selected by repositories' queries to compute ETags without loading entities
+ */
+@Data
+public class VersionedId {
+    private final long id;
+    private final long version;
+
+    public VersionedId(long id, long version){
+        this.id = id;
+        this.version = version;
+    }
+}
@@ -3,9 +3,50 @@
  */
 package com.heavenhr.rproc.rproc.enums;
 
+/**
+ * Possible flows are:
+ *
+ *  - null -> APPLIED;
+ *  - APPLIED -> INVITED;
+ *  - APPLIED -> REJECTED;
+ *  - INVITED -> REJECTED;
+ *  - INVITED -> HIRED
+ *
+ * Flows are kept as bitmasks (bit per status' ordinal), so a check is a single bitwise operation
+ */
 public enum ApplicationStatus {
     APPLIED,
     INVITED,
     REJECTED,
-    HIRED
+    HIRED;
+
+    /**
+     * statuses an application without status can get
+     */
+    private static final int INITIAL = APPLIED.bit();
+
+    static {
+        APPLIED.next = INVITED.bit() | REJECTED.bit();
+        INVITED.next = HIRED.bit() | REJECTED.bit();
+    }
+
+    /**
+     * statuses this status can be changed to
+     */
+    private int next;
+
+    private int bit(){
+        return 1 << ordinal();
+    }
+
+    /**
+     * @param from current status, null if not set yet
+     * @param to
+     * @return true if the status can be changed from 'from' to 'to'
+     */
+    public static boolean isTransitionAllowed(ApplicationStatus from, ApplicationStatus to){
+        if (to == null) return false;
+
+        return ((from == null ? INITIAL : from.next) & to.bit()) != 0;
+    }
 }
@@ -0,0 +1,19 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.exceptions;
+
+import java.util.List;
+
+/**
+ * thrown when an application cannot be changed because it is being changed concurrently
+ */
+public class ApplicationConcurrentlyModifiedException extends RuntimeException{
+    public ApplicationConcurrentlyModifiedException(long id){
+        super(String.format("application #%d is being modified concurrently, try again later", id));
+    }
+
+    public ApplicationConcurrentlyModifiedException(List<Long> ids){
+        super(String.format("applications %s are being modified concurrently, try again later", ids));
+    }
+}
@@ -4,7 +4,7 @@
 package com.heavenhr.rproc.rproc.exceptions;
 
 public class ApplicationNotFoundException extends RuntimeException{
-    public ApplicationNotFoundException(int id){
+    public ApplicationNotFoundException(long id){
         super(String.format("Error: application with #%d not found", id));
     }
 }
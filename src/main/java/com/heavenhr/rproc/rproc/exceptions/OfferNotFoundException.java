@@ -4,7 +4,7 @@
 package com.heavenhr.rproc.rproc.exceptions;
 
 public class OfferNotFoundException extends RuntimeException{
-    public OfferNotFoundException(int id){
+    public OfferNotFoundException(long id){
         super(String.format("Error: offer with #%d not found", id));
     }
 }
@@ -0,0 +1,92 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.heavenhr.rproc.rproc.entities.ApplicationSummary;
+import com.heavenhr.rproc.rproc.entities.Offer;
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import com.heavenhr.rproc.rproc.repositories.ApplicationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes applications as newline delimited json (one application per line).
+ *
+ * Application summaries are streamed from the database, they are not managed by the persistence context,
+ * so memory usage does not depend on the export size
+ */
+@Slf4j
+@Service
+public class ApplicationExportService {
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    public static final MediaType NDJSON = MediaType.valueOf(NDJSON_VALUE);
+
+    private final ApplicationRepository applicationRepository;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter objectWriter;
+
+    @Autowired
+    public ApplicationExportService(
+            ApplicationRepository applicationRepository,
+            ObjectMapper objectMapper){
+        this.applicationRepository = applicationRepository;
+        this.objectMapper = objectMapper;
+        //  flushing is done once per fetched chunk, not after every line
+        this.objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * all filters are optional
+     *
+     * @param offer
+     * @param applicationStatus
+     * @param appliedFrom applications submitted at or after the time
+     * @param appliedTo applications submitted before the time
+     * @param outputStream is not closed
+     * @return number of exported applications
+     * @throws IOException
+     */
+    @Transactional(readOnly = true)
+    public long export(
+            Offer offer,
+            ApplicationStatus applicationStatus,
+            LocalDateTime appliedFrom,
+            LocalDateTime appliedTo,
+            OutputStream outputStream) throws IOException {
+
+        long exported = 0;
+        try (Stream<ApplicationSummary> applications = applicationRepository.streamAllForExport(
+                    offer, applicationStatus, appliedFrom, appliedTo);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)){
+
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            Iterator<ApplicationSummary> iterator = applications.iterator();
+            while (iterator.hasNext()){
+                objectWriter.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+
+                if (++exported % ApplicationRepository.STREAM_FETCH_SIZE == 0){
+                    generator.flush();
+                }
+            }
+        }
+
+        log.info("{} applications exported", exported);
+        return exported;
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.funnel;
+
+import com.heavenhr.rproc.rproc.entities.ApplicationStatusCount;
+import com.heavenhr.rproc.rproc.entities.OfferFunnel;
+import com.heavenhr.rproc.rproc.repositories.ApplicationRepository;
+import com.heavenhr.rproc.rproc.repositories.OfferFunnelRepository;
+import com.heavenhr.rproc.rproc.repositories.OfferRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Creates funnels of offers created before funnels were maintained, their counters are counted
+ * from the offers' applications once.
+ *
+ * Funnels are counted when the context is refreshed, before the web server accepts requests,
+ * so no application changes meanwhile. Offers created afterwards get their funnels with them
+ */
+@Slf4j
+@Service
+public class OfferFunnelBackfill {
+    private final OfferRepository offerRepository;
+    private final OfferFunnelRepository offerFunnelRepository;
+    private final ApplicationRepository applicationRepository;
+
+    @Autowired
+    public OfferFunnelBackfill(
+            OfferRepository offerRepository,
+            OfferFunnelRepository offerFunnelRepository,
+            ApplicationRepository applicationRepository){
+        this.offerRepository = offerRepository;
+        this.offerFunnelRepository = offerFunnelRepository;
+        this.applicationRepository = applicationRepository;
+    }
+
+    /**
+     *
+     * @return number of created funnels
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    @Transactional
+    public int backfill(){
+        List<Long> offerIds = offerFunnelRepository.findOfferIdsWithoutFunnel();
+
+        for (long offerId: offerIds){
+            OfferFunnel funnel = new OfferFunnel(offerRepository.findById(offerId).get());
+            for (ApplicationStatusCount statusCount: applicationRepository.countByOfferIdGroupByApplicationStatus(offerId)){
+                funnel.addApplications(statusCount.getApplicationStatus(), (int) statusCount.getCount());
+            }
+
+            offerFunnelRepository.save(funnel);
+        }
+
+        if (!offerIds.isEmpty()) log.info("funnels of {} offers are counted from their applications", offerIds.size());
+        return offerIds.size();
+    }
+}
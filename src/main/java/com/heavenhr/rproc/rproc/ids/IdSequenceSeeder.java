@@ -0,0 +1,143 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.ids;
+
+import com.heavenhr.rproc.rproc.entities.PooledSequenceGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Brings a database file created before ids were allocated from pooled sequences up to date:
+ * ids and columns referencing them are widened to bigint,
+ * and every sequence is restarted after the largest id of its table, so new ids do not collide with existing ones.
+ *
+ * Sequences are seeded when the context is refreshed, before the web server accepts requests and anything is inserted.
+ * Tables and sequences are read from entities whose ids are generated by PooledSequenceGenerator.
+ *
+ * Only H2 database files need the upgrade and the upgrade reads H2's information_schema,
+ * so nothing is done with any other dialect
+ */
+@Slf4j
+@Service
+public class IdSequenceSeeder {
+    private final SessionFactoryImplementor sessionFactory;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public IdSequenceSeeder(EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate){
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     *
+     * @return number of restarted sequences
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public int seed(){
+        if (!(sessionFactory.getJdbcServices().getDialect() instanceof H2Dialect)){
+            log.info("id sequences are not seeded, the database is not H2");
+            return 0;
+        }
+
+        int seeded = 0;
+        for (EntityPersister persister: sessionFactory.getMetamodel().entityPersisters().values()){
+            if (!(persister.getIdentifierGenerator() instanceof PooledSequenceGenerator)){
+                continue;
+            }
+
+            String table = ((AbstractEntityPersister) persister).getTableName();
+            String idColumn = ((AbstractEntityPersister) persister).getIdentifierColumnNames()[0];
+            DatabaseStructure sequence = ((PooledSequenceGenerator) persister.getIdentifierGenerator()).getDatabaseStructure();
+
+            widen(table, idColumn);
+            if (seed(table, idColumn, sequence)){
+                seeded++;
+            }
+        }
+
+        return seeded;
+    }
+
+    /**
+     * widens the id column and columns of foreign keys referencing it
+     *
+     * @param table
+     * @param idColumn
+     */
+    private void widen(String table, String idColumn){
+        widenColumn(table.toUpperCase(), idColumn.toUpperCase());
+
+        List<Map<String, Object>> references = jdbcTemplate.queryForList(
+                "select fktable_name, fkcolumn_name from information_schema.cross_references " +
+                "where pktable_schema = schema() and pktable_name = ? and pkcolumn_name = ?",
+                table.toUpperCase(),
+                idColumn.toUpperCase());
+        for (Map<String, Object> reference: references){
+            widenColumn((String) reference.get("FKTABLE_NAME"), (String) reference.get("FKCOLUMN_NAME"));
+        }
+    }
+
+    private void widenColumn(String table, String column){
+        List<String> nullable = jdbcTemplate.queryForList(
+                "select is_nullable from information_schema.columns " +
+                "where table_schema = schema() and table_name = ? and column_name = ? and type_name = 'INTEGER'",
+                String.class,
+                table,
+                column);
+        if (nullable.isEmpty()){
+            return;
+        }
+
+        jdbcTemplate.execute("alter table " + table + " alter column " + column + " bigint" +
+                ("NO".equals(nullable.get(0)) ? " not null" : ""));
+        log.info("{}.{} is widened to bigint", table, column);
+    }
+
+    /**
+     * restarts the sequence after the table's largest id if the sequence's next block would overlap existing ids
+     *
+     * @param table
+     * @param idColumn
+     * @param sequence
+     * @return true if the sequence is restarted
+     */
+    private boolean seed(String table, String idColumn, DatabaseStructure sequence){
+        Long maxId = jdbcTemplate.queryForObject("select max(" + idColumn + ") from " + table, Long.class);
+        if (maxId == null){
+            return false;
+        }
+
+        //  the last value handed out, the next one is incremented by the block size
+        Long currentValue = jdbcTemplate.queryForObject(
+                "select current_value from information_schema.sequences " +
+                "where sequence_schema = schema() and sequence_name = ?",
+                Long.class,
+                sequence.getName().toUpperCase());
+        if (currentValue + sequence.getIncrementSize() > maxId){
+            return false;
+        }
+
+        jdbcTemplate.execute("alter sequence " + sequence.getName() + " restart with " + (maxId + 1));
+        log.info("{} is restarted with {}, after the largest id of {}", sequence.getName(), maxId + 1, table);
+
+        return true;
+    }
+}
@@ -5,6 +5,15 @@ package com.heavenhr.rproc.rproc.messaging;
 
 import com.heavenhr.rproc.rproc.entities.Application;
 
+import java.util.Collection;
+
 public interface ApplicationStatusNotificationService {
     void sendNotification(Application application);
+
+    /**
+     * sends notifications for all applications at once
+     *
+     * @param applications
+     */
+    void sendNotifications(Collection<Application> applications);
 }
@@ -0,0 +1,359 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.messaging;
+
+import com.heavenhr.rproc.rproc.entities.Application;
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes notifications from a single sender thread, so callers never wait for the broker.
+ *
+ * Notifications are put into a bounded queue, the sender takes up to batchSize of them
+ * (waiting up to linger for an incomplete batch) and publishes them to the broker at once.
+ * Notifications are dropped if the queue is full, a batch is failed if the broker does not confirm it.
+ *
+ * Every application status has its own queue (lane), the sender takes up to a lane's weight of notifications
+ * from every lane in turn, so a burst of one status (e.g. bulk rejections) doesn't hold up others.
+ * An application's notifications are still published in the order they are queued:
+ * while one of them is queued, later ones go to the same lane instead of their status' lane.
+ *
+ * The service publishes status changes directly if the outbox is disabled (rproc.notifications.outbox.enabled),
+ * otherwise it publishes notifications relayed from the outbox
+ */
+@Slf4j
+@Service
+public class AsyncNotificationService implements ApplicationStatusNotificationService {
+    /**
+     * how often an idle sender checks whether it is stopped, in ms
+     */
+    private static final long IDLE_POLL_INTERVAL = 100;
+
+    private final NotificationBroker notificationBroker;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final Map<ApplicationStatus, Lane> lanes = new EnumMap<>(ApplicationStatus.class);
+    /**
+     * lanes in the order the sender takes notifications from them, the heaviest first
+     */
+    private final List<Lane> dispatchOrder;
+    /**
+     * lanes of applications having queued notifications by application id, see publish()
+     */
+    private final Map<Long, Route> routes = new HashMap<>();
+    /**
+     * a permit per queued notification, the sender waits for them
+     */
+    private final Semaphore queued = new Semaphore(0);
+
+    private final Timer confirmLatency;
+    private final Counter published;
+    private final Counter dropped;
+    private final Counter failed;
+
+    private final Thread sender;
+    private volatile boolean running;
+
+    @Autowired
+    public AsyncNotificationService(
+            NotificationBroker notificationBroker,
+            NotificationProperties notificationProperties,
+            MeterRegistry meterRegistry){
+        if (notificationProperties.getBatchSize() < 1){
+            throw new IllegalArgumentException(
+                    String.format("notifications' batch size is invalid: %d", notificationProperties.getBatchSize()));
+        }
+
+        this.notificationBroker = notificationBroker;
+        this.batchSize = notificationProperties.getBatchSize();
+        this.lingerNanos = notificationProperties.getLinger().toNanos();
+        for (ApplicationStatus applicationStatus: ApplicationStatus.values()){
+            lanes.put(applicationStatus, new Lane(
+                    applicationStatus,
+                    notificationProperties.getLane(applicationStatus),
+                    notificationProperties.getQueueCapacity(),
+                    meterRegistry));
+        }
+        this.dispatchOrder = new ArrayList<>(lanes.values());
+        this.dispatchOrder.sort(Comparator.comparingInt((Lane lane) -> lane.weight).reversed());
+
+        Gauge.builder("rproc.notifications.queue.depth", this, AsyncNotificationService::queueDepth)
+                .description("notifications waiting to be published")
+                .register(meterRegistry);
+        this.confirmLatency = Timer.builder("rproc.notifications.confirm.latency")
+                .description("time to publish a batch and get the broker's confirms")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.published = meterRegistry.counter("rproc.notifications.published");
+        this.dropped = meterRegistry.counter("rproc.notifications.dropped");
+        this.failed = meterRegistry.counter("rproc.notifications.failed");
+
+        this.sender = new Thread(this::send, "notification-sender");
+        this.sender.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start(){
+        running = true;
+        sender.start();
+    }
+
+    /**
+     * notifications queued before the stop are still published
+     *
+     * @throws InterruptedException
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException{
+        running = false;
+        sender.join();
+    }
+
+    /**
+     * if called within a transaction the notification is published once the transaction is committed
+     *
+     * @param application
+     */
+    @Override
+    public void sendNotification(Application application){
+        publishAfterCommit(Collections.singletonList(new Notification(application)));
+    }
+
+    @Override
+    public void sendNotifications(Collection<Application> applications){
+        publishAfterCommit(applications.stream().map(Notification::new).collect(Collectors.toList()));
+    }
+
+    private void publishAfterCommit(List<Notification> notifications){
+        if (!TransactionSynchronizationManager.isSynchronizationActive()){
+            notifications.forEach(this::publish);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter(){
+            @Override
+            public void afterCommit(){
+                notifications.forEach(AsyncNotificationService.this::publish);
+            }
+        });
+    }
+
+    private int queueDepth(){
+        return lanes.values().stream().mapToInt(lane -> lane.queue.size()).sum();
+    }
+
+    /**
+     * notifications without a status go to the APPLIED lane.
+     * If the application has notifications queued the notification goes to their lane,
+     * so it is not taken ahead of them from a heavier lane
+     *
+     * @param notification
+     * @return completed once the broker confirms the notification,
+     * completed exceptionally if the notification is dropped or not confirmed
+     */
+    public CompletableFuture<Void> publish(Notification notification){
+        Lane lane;
+        PendingNotification pendingNotification;
+        boolean isQueued;
+        synchronized (routes){
+            Route route = routes.get(notification.getApplicationId());
+            lane = route != null ? route.lane : lanes.get(notification.getApplicationStatus() == null ?
+                    ApplicationStatus.APPLIED : notification.getApplicationStatus());
+
+            pendingNotification = new PendingNotification(notification, lane);
+            isQueued = lane.queue.offer(pendingNotification);
+            if (isQueued){
+                routes.computeIfAbsent(notification.getApplicationId(), applicationId -> new Route(lane)).queued++;
+            }
+        }
+
+        if (isQueued){
+            queued.release();
+        }else{
+            dropped.increment();
+            lane.dropped.increment();
+            log.error("notifications' {} queue is full, notification is dropped: {}", lane.applicationStatus, notification);
+            pendingNotification.future.completeExceptionally(
+                    new AmqpException(String.format("notifications' %s queue is full", lane.applicationStatus)));
+        }
+
+        return pendingNotification.future;
+    }
+
+    private void send(){
+        List<PendingNotification> batch = new ArrayList<>(batchSize);
+        while (running || queued.availablePermits() > 0){
+            try{
+                if (!queued.tryAcquire(IDLE_POLL_INTERVAL, TimeUnit.MILLISECONDS)) continue;
+
+                take(batch);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize){
+                    if (!queued.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) break;
+
+                    take(batch);
+                }
+
+                publishBatch(batch);
+            }catch (InterruptedException e){
+                log.warn("notification sender is interrupted, {} notifications are not published", queueDepth());
+                Thread.currentThread().interrupt();
+                return;
+            }finally{
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * takes up to lanes' weights of notifications from every lane in turn
+     * until the batch is full or lanes are empty.
+     * Should be called with a permit acquired, permits of other taken notifications are acquired here
+     *
+     * @param batch
+     */
+    private void take(List<PendingNotification> batch){
+        int start = batch.size();
+        int taken = 0;
+        boolean more = true;
+        while (more && batch.size() < batchSize){
+            more = false;
+            for (Lane lane: dispatchOrder){
+                int max = Math.min(lane.weight, batchSize - batch.size());
+                if (max == 0) break;
+
+                int drained = lane.queue.drainTo(batch, max);
+                taken += drained;
+                //  the lane may have more notifications
+                if (drained == max) more = true;
+            }
+        }
+
+        //  a notification is queued before its permit is released, thus, the permits are released soon if not yet
+        if (taken > 1) queued.acquireUninterruptibly(taken - 1);
+
+        //  later notifications of the applications are put after the taken ones, so they may go to their own lanes
+        synchronized (routes){
+            for (PendingNotification pendingNotification: batch.subList(start, batch.size())){
+                long applicationId = pendingNotification.notification.getApplicationId();
+                if (--routes.get(applicationId).queued == 0) routes.remove(applicationId);
+            }
+        }
+    }
+
+    private void publishBatch(List<PendingNotification> batch){
+        List<Notification> notifications = new ArrayList<>(batch.size());
+        long start = System.nanoTime();
+        for (PendingNotification pendingNotification: batch){
+            notifications.add(pendingNotification.notification);
+            pendingNotification.lane.wait.record(start - pendingNotification.queuedAt, TimeUnit.NANOSECONDS);
+        }
+
+        try{
+            notificationBroker.publish(notifications);
+        }catch (RuntimeException e){
+            failed.increment(batch.size());
+            log.error("couldn't publish {} notifications due to exception: '{}'", batch.size(), e.getMessage());
+            batch.forEach(p -> p.future.completeExceptionally(e));
+            return;
+        }
+        confirmLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        published.increment(batch.size());
+
+        batch.forEach(p -> {
+            p.lane.published.increment();
+            p.future.complete(null);
+        });
+    }
+
+    private static class Lane {
+        private final ApplicationStatus applicationStatus;
+        private final int weight;
+        private final BlockingQueue<PendingNotification> queue;
+
+        private final Counter published;
+        private final Counter dropped;
+        private final Timer wait;
+
+        private Lane(
+                ApplicationStatus applicationStatus,
+                NotificationProperties.Lane properties,
+                int defaultQueueCapacity,
+                MeterRegistry meterRegistry){
+            if (properties.getWeight() < 1){
+                throw new IllegalArgumentException(String.format(
+                        "notifications' %s lane weight is invalid: %d", applicationStatus, properties.getWeight()));
+            }
+
+            this.applicationStatus = applicationStatus;
+            this.weight = properties.getWeight();
+            this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity() == null ?
+                    defaultQueueCapacity : properties.getQueueCapacity());
+
+            Tags tags = Tags.of("lane", applicationStatus.name());
+            Gauge.builder("rproc.notifications.lane.depth", queue, Collection::size)
+                    .description("notifications of the lane waiting to be published")
+                    .tags(tags)
+                    .register(meterRegistry);
+            this.published = meterRegistry.counter("rproc.notifications.lane.published", tags);
+            this.dropped = meterRegistry.counter("rproc.notifications.lane.dropped", tags);
+            this.wait = Timer.builder("rproc.notifications.lane.wait")
+                    .description("time notifications of the lane wait to be published")
+                    .tags(tags)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+        }
+    }
+
+    private static class Route {
+        private final Lane lane;
+        /**
+         * number of the application's notifications in the lane
+         */
+        private int queued;
+
+        private Route(Lane lane){
+            this.lane = lane;
+        }
+    }
+
+    private static class PendingNotification {
+        private final Notification notification;
+        private final Lane lane;
+        private final long queuedAt = System.nanoTime();
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingNotification(Notification notification, Lane lane){
+            this.notification = notification;
+            this.lane = lane;
+        }
+    }
+}
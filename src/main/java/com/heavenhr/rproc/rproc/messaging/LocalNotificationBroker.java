@@ -0,0 +1,81 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.messaging;
+
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.AmqpIOException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * In-JVM broker replacing rabbitmq with the local-broker profile, so the messaging path is run and measured
+ * without a rabbitmq server (see application-local-broker.properties).
+ *
+ * Notifications are written the same way they are sent to rabbitmq, every batch takes the configured latency
+ * to be confirmed and is not confirmed with the configured failure rate.
+ * Confirmed notifications are passed to subscribers
+ */
+@Slf4j
+@Service
+@Profile(LocalNotificationBroker.PROFILE)
+public class LocalNotificationBroker implements NotificationBroker {
+    public static final String PROFILE = "local-broker";
+
+    private final NotificationWriter notificationWriter;
+    private final long latencyNanos;
+    private final double failureRate;
+    private final List<Consumer<Notification>> subscribers = new CopyOnWriteArrayList<>();
+
+    @Setter
+    private volatile boolean available = true;
+
+    @Autowired
+    public LocalNotificationBroker(NotificationWriter notificationWriter, NotificationProperties notificationProperties){
+        double failureRate = notificationProperties.getLocalBroker().getFailureRate();
+        if (failureRate < 0 || failureRate > 1){
+            throw new IllegalArgumentException(
+                    String.format("local broker's failure rate is invalid: %s", failureRate));
+        }
+
+        this.notificationWriter = notificationWriter;
+        this.latencyNanos = notificationProperties.getLocalBroker().getLatency().toNanos();
+        this.failureRate = failureRate;
+        log.warn("notifications are published to the local broker, not to rabbitmq");
+    }
+
+    public void subscribe(Consumer<Notification> subscriber){
+        subscribers.add(subscriber);
+    }
+
+    @Override
+    public void publish(List<Notification> notifications){
+        if (notifications.isEmpty()) return;
+        if (!available) throw new AmqpConnectException(new ConnectException("local broker is unavailable"));
+
+        notifications.forEach(notificationWriter::toMessage);
+        try{
+            TimeUnit.NANOSECONDS.sleep(latencyNanos);
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new AmqpIOException(new IOException("interrupted while waiting for confirms", e));
+        }
+
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate){
+            throw new AmqpIOException(new IOException("local broker didn't confirm the batch"));
+        }
+
+        subscribers.forEach(subscriber -> notifications.forEach(subscriber));
+    }
+}
@@ -3,14 +3,18 @@
  */
 package com.heavenhr.rproc.rproc.messaging;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.heavenhr.rproc.rproc.entities.Application;
-import com.heavenhr.rproc.rproc.entities.Offer;
-import lombok.AccessLevel;
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
 import lombok.Data;
-import lombok.Getter;
 
 import java.io.Serializable;
 
+/**
+ * Only email and body are sent to the broker.
+ * Notifications keep the application's id and status instead of the application itself,
+ * so queued notifications do not hold entities
+ */
 @Data
 public class Notification implements Serializable {
     private final String email;
@@ -18,31 +22,39 @@ public class Notification implements Serializable {
     /**
      * do not serialize this field
      */
-    @Getter(AccessLevel.NONE)
-    private final Application application;
+    @JsonIgnore
+    private final long applicationId;
     /**
      * do not serialize this field
      */
-    @Getter(AccessLevel.NONE)
-    private final Offer offer;
+    @JsonIgnore
+    private final ApplicationStatus applicationStatus;
+
+    public Notification(long applicationId, ApplicationStatus applicationStatus, String email, String body){
+        this.applicationId = applicationId;
+        this.applicationStatus = applicationStatus;
+        this.email = email;
+        this.body = body;
+    }
 
+    /**
+     *
+     * @param application application with its offer loaded
+     */
     public Notification(Application application){
-        this.offer = application.getOffer();
-        this.application = application;
+        this.applicationId = application.getId();
+        this.applicationStatus = application.getApplicationStatus();
 
         this.email = application.getEmail();
-        this.body =
-                "Dear applicant,\r\n" +
-                "\r\n" +
-                "your application #'" + application.getId() + "' to the position: '" + offer.getJobTitle() + "' " +
-                "has changed the status to '" + application.getApplicationStatus() + "'";
+        this.body = NotificationWriter.body(application);
     }
 
     @Override
     public String toString(){
         return String.format(
-                "notification for the application: '%s' to <%s> body: '%s'",
-                this.application,
+                "notification for the application: #%d [%s] to <%s> body: '%s'",
+                this.applicationId,
+                this.applicationStatus,
                 this.email,
                 this.body);
     }
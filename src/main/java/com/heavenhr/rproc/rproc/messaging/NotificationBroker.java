@@ -0,0 +1,19 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.messaging;
+
+import java.util.List;
+
+/**
+ * Delivers notifications to a message broker
+ */
+public interface NotificationBroker {
+    /**
+     * publishes all notifications at once and waits until the broker confirms them
+     *
+     * @param notifications
+     * @throws org.springframework.amqp.AmqpException if the broker is unavailable or has not confirmed notifications
+     */
+    void publish(List<Notification> notifications);
+}
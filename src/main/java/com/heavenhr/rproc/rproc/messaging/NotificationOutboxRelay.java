@@ -0,0 +1,153 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.messaging;
+
+import com.heavenhr.rproc.rproc.entities.NotificationOutboxEntry;
+import com.heavenhr.rproc.rproc.repositories.NotificationOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes notifications saved by OutboxNotificationService and marks them sent once the broker confirms them.
+ * Entries are passed to AsyncNotificationService in the order they are saved, which keeps an application's
+ * notifications in that order, while notifications of different applications may be reordered by its lanes.
+ *
+ * Not confirmed entries are relayed again on the next poll, thus, delivery is at least once:
+ * a notification may be sent twice if the service stops between the confirm and marking the entry sent.
+ *
+ * If the coalescing window is set, an application's notifications are relayed only once its status
+ * has not changed for the window and only the latest of them is published, the others are marked sent
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "rproc.notifications.outbox.enabled", matchIfMissing = true)
+public class NotificationOutboxRelay {
+    private final NotificationOutboxRepository notificationOutboxRepository;
+    private final AsyncNotificationService asyncNotificationService;
+    private final int batchSize;
+    private final long publishTimeout;
+    private final Duration retention;
+    private final Duration coalescingWindow;
+    private final Counter coalesced;
+
+    @Autowired
+    public NotificationOutboxRelay(
+            NotificationOutboxRepository notificationOutboxRepository,
+            AsyncNotificationService asyncNotificationService,
+            NotificationProperties notificationProperties,
+            MeterRegistry meterRegistry){
+        this.notificationOutboxRepository = notificationOutboxRepository;
+        this.asyncNotificationService = asyncNotificationService;
+        this.batchSize = notificationProperties.getOutbox().getBatchSize();
+        this.publishTimeout = notificationProperties.getOutbox().getPublishTimeout().toMillis();
+        this.retention = notificationProperties.getOutbox().getRetention();
+        this.coalescingWindow = notificationProperties.getOutbox().getCoalescingWindow();
+        this.coalesced = meterRegistry.counter("rproc.notifications.coalesced");
+
+        Gauge.builder("rproc.notifications.outbox.pending", notificationOutboxRepository,
+                NotificationOutboxRepository::countBySentAtIsNull)
+                .description("notifications saved to the outbox and not sent yet")
+                .register(meterRegistry);
+    }
+
+    /**
+     * relays batches until the outbox is drained or a batch is not confirmed completely
+     *
+     * @return number of sent entries
+     */
+    @Scheduled(
+            fixedDelayString = "${rproc.notifications.outbox.poll-interval:1000}",
+            initialDelayString = "${rproc.notifications.outbox.poll-interval:1000}")
+    public int relay(){
+        int sent = 0;
+        while (true){
+            //  entries saved after the time are not relayed during this poll while coalescing
+            LocalDateTime settledAt = LocalDateTime.now().minus(coalescingWindow);
+            List<NotificationOutboxEntry> entries = coalescingWindow.isZero() ?
+                    notificationOutboxRepository.findPending(PageRequest.of(0, batchSize)) :
+                    notificationOutboxRepository.findLatestPendingCreatedBefore(settledAt, PageRequest.of(0, batchSize));
+            if (entries.isEmpty()) break;
+
+            List<NotificationOutboxEntry> confirmed = relay(entries);
+            markSent(confirmed, settledAt);
+            sent += confirmed.size();
+            if (confirmed.size() < entries.size() || entries.size() < batchSize) break;
+        }
+
+        notificationOutboxRepository.deleteSentBefore(LocalDateTime.now().minus(retention));
+
+        return sent;
+    }
+
+    /**
+     *
+     * @param entries
+     * @return confirmed entries
+     */
+    private List<NotificationOutboxEntry> relay(List<NotificationOutboxEntry> entries){
+        List<CompletableFuture<Void>> futures = new ArrayList<>(entries.size());
+        entries.forEach(entry -> futures.add(asyncNotificationService.publish(entry.toNotification())));
+
+        try{
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(publishTimeout, TimeUnit.MILLISECONDS);
+        }catch (ExecutionException e){
+            log.error("couldn't relay notifications due to exception: '{}'", e.getCause().getMessage());
+        }catch (TimeoutException e){
+            log.error("notifications are not confirmed in {} ms", publishTimeout);
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+
+        List<NotificationOutboxEntry> confirmed = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++){
+            CompletableFuture<Void> future = futures.get(i);
+            if (future.isDone() && !future.isCompletedExceptionally()){
+                confirmed.add(entries.get(i));
+            }
+        }
+        log.info("{} of {} notifications relayed", confirmed.size(), entries.size());
+
+        return confirmed;
+    }
+
+    /**
+     * while coalescing the earlier entries of the applications are marked sent as well
+     *
+     * @param confirmed
+     * @param settledAt
+     */
+    private void markSent(List<NotificationOutboxEntry> confirmed, LocalDateTime settledAt){
+        if (confirmed.isEmpty()) return;
+
+        if (coalescingWindow.isZero()){
+            notificationOutboxRepository.markSent(
+                    confirmed.stream().map(NotificationOutboxEntry::getId).collect(Collectors.toList()),
+                    LocalDateTime.now());
+            return;
+        }
+
+        int marked = notificationOutboxRepository.markSentByApplications(
+                confirmed.stream().map(NotificationOutboxEntry::getApplicationId).collect(Collectors.toList()),
+                settledAt,
+                LocalDateTime.now());
+        coalesced.increment(marked - confirmed.size());
+    }
+}
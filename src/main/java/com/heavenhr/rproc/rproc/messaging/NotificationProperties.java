@@ -0,0 +1,143 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.messaging;
+
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(value = "rproc.notifications")
+public class NotificationProperties {
+    /**
+     * notifications of a lane waiting to be published, new ones are dropped when the lane's queue is full
+     */
+    private int queueCapacity = 10000;
+    /**
+     * maximum number of notifications published and confirmed together
+     */
+    private int batchSize = 100;
+    /**
+     * how long the sender waits for more notifications before it publishes an incomplete batch
+     */
+    private Duration linger = Duration.ofMillis(20);
+    /**
+     * how long the sender waits for the broker to confirm a batch
+     */
+    private Duration confirmTimeout = Duration.ofSeconds(5);
+
+    /**
+     * lanes by application status, see AsyncNotificationService.
+     * A lane configured partly gets defaults of the Lane class, not the ones below
+     */
+    private Map<ApplicationStatus, Lane> lanes = new EnumMap<>(ApplicationStatus.class);
+
+    private final Outbox outbox = new Outbox();
+    private final Spool spool = new Spool();
+    private final LocalBroker localBroker = new LocalBroker();
+
+    /**
+     * see NotificationOutboxRelay, the relay's poll interval is rproc.notifications.outbox.poll-interval (in ms)
+     */
+    {
+        lanes.put(ApplicationStatus.HIRED, new Lane(4));
+        lanes.put(ApplicationStatus.INVITED, new Lane(4));
+        lanes.put(ApplicationStatus.APPLIED, new Lane(2));
+        lanes.put(ApplicationStatus.REJECTED, new Lane(1));
+    }
+
+    /**
+     *
+     * @param applicationStatus
+     * @return the status' lane or a default one if it isn't configured
+     */
+    public Lane getLane(ApplicationStatus applicationStatus){
+        return lanes.getOrDefault(applicationStatus, new Lane());
+    }
+
+    @Data
+    public static class Lane {
+        /**
+         * notifications the sender takes from the lane per turn, relative to other lanes
+         */
+        private int weight = 1;
+        /**
+         * defaults to rproc.notifications.queue-capacity
+         */
+        private Integer queueCapacity;
+        /**
+         * defaults to spring.rabbitmq.template.routing-key
+         */
+        private String routingKey;
+
+        public Lane(){
+        }
+
+        public Lane(int weight){
+            this.weight = weight;
+        }
+    }
+
+    @Data
+    public static class Outbox {
+        /**
+         * if disabled notifications are published right after status changes are committed and lost if not confirmed
+         */
+        private boolean enabled = true;
+        /**
+         * maximum number of entries relayed together
+         */
+        private int batchSize = 500;
+        /**
+         * how long the relay waits for entries to be confirmed, not confirmed entries are relayed again
+         */
+        private Duration publishTimeout = Duration.ofSeconds(30);
+        /**
+         * sent entries are removed after this period
+         */
+        private Duration retention = Duration.ofDays(7);
+        /**
+         * an application's notifications are held until its status has not changed for this period,
+         * then only the latest of them is published. Zero disables coalescing
+         */
+        private Duration coalescingWindow = Duration.ZERO;
+    }
+
+    /**
+     * see NotificationSpool, the drainer's interval is rproc.notifications.spool.drain-interval (in ms)
+     */
+    @Data
+    public static class Spool {
+        /**
+         * if enabled notifications the broker couldn't take are spooled and replayed later
+         * instead of being failed
+         */
+        private boolean enabled = false;
+        private String path = "rproc.notifications.spool";
+        /**
+         * notifications are failed if the spool is full
+         */
+        private DataSize capacity = DataSize.ofMegabytes(64);
+    }
+
+    /**
+     * see LocalNotificationBroker, used with the local-broker profile only
+     */
+    @Data
+    public static class LocalBroker {
+        /**
+         * how long the broker takes to confirm a batch
+         */
+        private Duration latency = Duration.ofMillis(2);
+        /**
+         * probability of a batch not to be confirmed, from 0 to 1
+         */
+        private double failureRate = 0;
+    }
+}
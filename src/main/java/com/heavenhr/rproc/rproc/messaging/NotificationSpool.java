@@ -0,0 +1,400 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.messaging;
+
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped append-only file keeping notifications the broker couldn't take until they are replayed.
+ *
+ * The file starts with a header with the read and write offsets followed by the records:
+ * payload's length, payload's crc32 and the notification itself.
+ * Records are forced to the disk before the write offset is moved and the read offset is moved
+ * only after records are replayed, so a crash may replay records twice but never loses them.
+ * Records after the last valid one (written partially before a crash) are dropped when the file is opened.
+ *
+ * The spool is bounded by its capacity, both offsets are reset once all records are replayed.
+ * While records keep coming the spool may never become empty, so records left are moved to the file's start
+ * once the read offset passes half of the capacity or an append doesn't fit, see compact()
+ */
+@Slf4j
+@Component
+@Profile("!" + LocalNotificationBroker.PROFILE)
+@ConditionalOnProperty(name = "rproc.notifications.spool.enabled")
+public class NotificationSpool implements Closeable {
+    private static final int MAGIC = 0x52504e53;
+    private static final int VERSION = 1;
+
+    private static final int MAGIC_POSITION = 0;
+    private static final int VERSION_POSITION = 4;
+    private static final int READ_OFFSET_POSITION = 8;
+    private static final int WRITE_OFFSET_POSITION = 12;
+    private static final int HEADER_SIZE = 16;
+    /**
+     * payload's length and crc32
+     */
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private final Path path;
+    private final int capacity;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    private int readOffset;
+    private int writeOffset;
+    private volatile int pending;
+
+    /**
+     * only one drain runs at a time, appends are not blocked while a drained batch is replayed
+     */
+    private final Object drainLock = new Object();
+
+    private final Counter appended;
+    private final Counter replayed;
+    private final Counter rejected;
+
+    @Autowired
+    public NotificationSpool(NotificationProperties notificationProperties, MeterRegistry meterRegistry) throws IOException{
+        this(
+                Paths.get(notificationProperties.getSpool().getPath()),
+                notificationProperties.getSpool().getCapacity().toBytes(),
+                meterRegistry);
+    }
+
+    /**
+     *
+     * @param path file is created if it doesn't exist
+     * @param capacity maximum size of records in bytes
+     * @param meterRegistry
+     * @throws IOException
+     */
+    public NotificationSpool(Path path, long capacity, MeterRegistry meterRegistry) throws IOException{
+        if (capacity <= RECORD_HEADER_SIZE || capacity > Integer.MAX_VALUE - HEADER_SIZE){
+            throw new IllegalArgumentException(
+                    String.format("notifications' spool capacity is invalid: %d", capacity));
+        }
+
+        this.path = path;
+        this.capacity = (int) capacity;
+        this.channel = FileChannel.open(
+                path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try{
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + this.capacity);
+            open();
+        }catch (IOException | RuntimeException e){
+            channel.close();
+            throw e;
+        }
+
+        Gauge.builder("rproc.notifications.spool.pending", this, NotificationSpool::size)
+                .description("notifications spooled and not replayed yet")
+                .register(meterRegistry);
+        this.appended = meterRegistry.counter("rproc.notifications.spool.appended");
+        this.replayed = meterRegistry.counter("rproc.notifications.spool.replayed");
+        this.rejected = meterRegistry.counter("rproc.notifications.spool.rejected");
+    }
+
+    private void open(){
+        if (buffer.getInt(MAGIC_POSITION) == 0){
+            //  new file
+            buffer.putInt(VERSION_POSITION, VERSION);
+            buffer.putInt(READ_OFFSET_POSITION, 0);
+            buffer.putInt(WRITE_OFFSET_POSITION, 0);
+            buffer.putInt(MAGIC_POSITION, MAGIC);
+            buffer.force();
+            return;
+        }
+
+        if (buffer.getInt(MAGIC_POSITION) != MAGIC || buffer.getInt(VERSION_POSITION) != VERSION){
+            throw new IllegalStateException(String.format("'%s' is not a notifications' spool", path));
+        }
+
+        readOffset = buffer.getInt(READ_OFFSET_POSITION);
+        writeOffset = buffer.getInt(WRITE_OFFSET_POSITION);
+        if (writeOffset > capacity){
+            throw new IllegalStateException(String.format(
+                    "notifications' spool '%s' holds %d bytes which is more than its capacity", path, writeOffset));
+        }
+        if (readOffset < 0 || writeOffset < 0 || readOffset > writeOffset){
+            throw new IllegalStateException(String.format(
+                    "notifications' spool '%s' offsets are corrupted: %d, %d", path, readOffset, writeOffset));
+        }
+
+        int offset = readOffset;
+        int records = 0;
+        while (offset < writeOffset){
+            int next = nextRecord(offset, writeOffset);
+            if (next < 0) break;
+
+            offset = next;
+            records++;
+        }
+        if (offset < writeOffset){
+            log.warn("notifications' spool '{}' has an incomplete record at {}, {} bytes are dropped",
+                    path, offset, writeOffset - offset);
+            writeOffset = offset;
+            buffer.putInt(WRITE_OFFSET_POSITION, writeOffset);
+            buffer.force();
+        }
+
+        pending = records;
+        if (records > 0) log.info("notifications' spool '{}' has {} notifications to replay", path, records);
+    }
+
+    /**
+     *
+     * @param offset record's offset
+     * @param limit
+     * @return next record's offset or -1 if the record is invalid
+     */
+    private int nextRecord(int offset, int limit){
+        if (limit - offset < RECORD_HEADER_SIZE) return -1;
+
+        int length = buffer.getInt(HEADER_SIZE + offset);
+        if (length <= 0 || length > limit - offset - RECORD_HEADER_SIZE) return -1;
+
+        int crc = buffer.getInt(HEADER_SIZE + offset + 4);
+        return crc == crc32(payload(offset, length)) ? offset + RECORD_HEADER_SIZE + length : -1;
+    }
+
+    private ByteBuffer payload(int offset, int length){
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(HEADER_SIZE + offset + RECORD_HEADER_SIZE);
+        payload.limit(HEADER_SIZE + offset + RECORD_HEADER_SIZE + length);
+
+        return payload.slice();
+    }
+
+    private static int crc32(ByteBuffer payload){
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload.duplicate());
+
+        return (int) crc32.getValue();
+    }
+
+    /**
+     *
+     * @return number of spooled notifications
+     */
+    public int size(){
+        return pending;
+    }
+
+    public boolean isEmpty(){
+        return pending == 0;
+    }
+
+    /**
+     * notifications are appended all or none
+     *
+     * @param notifications
+     * @return false if the spool doesn't have enough space for the notifications
+     */
+    public synchronized boolean append(List<Notification> notifications){
+        List<byte[]> payloads = new ArrayList<>(notifications.size());
+        long size = 0;
+        for (Notification notification: notifications){
+            byte[] payload = encode(notification);
+            payloads.add(payload);
+            size += RECORD_HEADER_SIZE + payload.length;
+        }
+
+        if (writeOffset + size > capacity){
+            compact();
+        }
+        if (writeOffset + size > capacity){
+            rejected.increment(notifications.size());
+            log.error("notifications' spool is full, {} notifications are rejected", notifications.size());
+            return false;
+        }
+
+        ByteBuffer records = buffer.duplicate();
+        records.position(HEADER_SIZE + writeOffset);
+        for (byte[] payload: payloads){
+            records.putInt(payload.length);
+            records.putInt(crc32(ByteBuffer.wrap(payload)));
+            records.put(payload);
+        }
+        buffer.force();
+
+        writeOffset = records.position() - HEADER_SIZE;
+        buffer.putInt(WRITE_OFFSET_POSITION, writeOffset);
+        buffer.force();
+
+        pending += notifications.size();
+        appended.increment(notifications.size());
+        return true;
+    }
+
+    /**
+     * passes up to maxNotifications of the oldest spooled notifications to the sender
+     * and removes them from the spool if the sender doesn't throw
+     *
+     * @param maxNotifications
+     * @param sender
+     * @return number of replayed notifications
+     */
+    public int drain(int maxNotifications, Consumer<List<Notification>> sender){
+        synchronized (drainLock){
+            List<Notification> notifications = new ArrayList<>();
+            int start, next;
+            synchronized (this){
+                start = next = readOffset;
+                while (next < writeOffset && notifications.size() < maxNotifications){
+                    int length = buffer.getInt(HEADER_SIZE + next);
+                    notifications.add(decode(payload(next, length)));
+                    next += RECORD_HEADER_SIZE + length;
+                }
+            }
+            if (notifications.isEmpty()) return 0;
+
+            sender.accept(Collections.unmodifiableList(notifications));
+
+            synchronized (this){
+                //  records may have been moved by compact() while the batch was replayed, the read offset moved with them
+                readOffset += next - start;
+                if (readOffset == writeOffset){
+                    //  both offsets are in the same sector, so they are written together
+                    readOffset = writeOffset = 0;
+                    buffer.putInt(WRITE_OFFSET_POSITION, 0);
+                    buffer.putInt(READ_OFFSET_POSITION, 0);
+                }else{
+                    buffer.putInt(READ_OFFSET_POSITION, readOffset);
+                }
+                buffer.force();
+
+                pending -= notifications.size();
+
+                if (readOffset >= capacity / 2){
+                    compact();
+                }
+            }
+            replayed.increment(notifications.size());
+
+            return notifications.size();
+        }
+    }
+
+    /**
+     * moves records left to the file's start, so space of replayed records is reused.
+     * Records are moved only if they don't overlap their new place (they take no more space than replayed ones),
+     * so a crash before the offsets are written leaves the records where they were
+     *
+     * @return true if records are moved
+     */
+    private boolean compact(){
+        int size = writeOffset - readOffset;
+        if (readOffset == 0 || size > readOffset) return false;
+
+        ByteBuffer records = buffer.duplicate();
+        records.position(HEADER_SIZE + readOffset);
+        records.limit(HEADER_SIZE + writeOffset);
+        ByteBuffer start = buffer.duplicate();
+        start.position(HEADER_SIZE);
+        start.put(records);
+        buffer.force();
+
+        //  both offsets are in the same sector, so they are written together
+        readOffset = 0;
+        writeOffset = size;
+        buffer.putInt(WRITE_OFFSET_POSITION, writeOffset);
+        buffer.putInt(READ_OFFSET_POSITION, readOffset);
+        buffer.force();
+
+        return true;
+    }
+
+    @PreDestroy
+    @Override
+    public synchronized void close() throws IOException{
+        buffer.force();
+        channel.close();
+    }
+
+    private static byte[] encode(Notification notification){
+        byte[] email = bytes(notification.getEmail());
+        byte[] body = bytes(notification.getBody());
+        byte[] status = bytes(notification.getApplicationStatus() == null ?
+                null : notification.getApplicationStatus().name());
+
+        ByteBuffer payload = ByteBuffer.allocate(8 + 12 + length(email) + length(body) + length(status));
+        payload.putLong(notification.getApplicationId());
+        put(payload, status);
+        put(payload, email);
+        put(payload, body);
+
+        return payload.array();
+    }
+
+    private static Notification decode(ByteBuffer payload){
+        long applicationId = payload.getLong();
+        String status = string(payload);
+        String email = string(payload);
+        String body = string(payload);
+
+        return new Notification(
+                applicationId,
+                status == null ? null : ApplicationStatus.valueOf(status),
+                email,
+                body);
+    }
+
+    private static byte[] bytes(String string){
+        return string == null ? null : string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes){
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    /**
+     * puts length (-1 for null) and bytes
+     */
+    private static void put(ByteBuffer payload, byte[] bytes){
+        if (bytes == null){
+            payload.putInt(-1);
+            return;
+        }
+
+        payload.putInt(bytes.length);
+        payload.put(bytes);
+    }
+
+    private static String string(ByteBuffer payload){
+        int length = payload.getInt();
+        if (length < 0) return null;
+
+        byte[] bytes = new byte[length];
+        payload.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.messaging;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Replays spooled notifications to rabbitmq in the order they are spooled once it is available again
+ */
+@Slf4j
+@Component
+@Profile("!" + LocalNotificationBroker.PROFILE)
+@ConditionalOnProperty(name = "rproc.notifications.spool.enabled")
+public class NotificationSpoolDrainer {
+    private final NotificationSpool notificationSpool;
+    private final RabbitNotificationService rabbitNotificationService;
+    private final int batchSize;
+
+    @Autowired
+    public NotificationSpoolDrainer(
+            NotificationSpool notificationSpool,
+            RabbitNotificationService rabbitNotificationService,
+            NotificationProperties notificationProperties){
+        this.notificationSpool = notificationSpool;
+        this.rabbitNotificationService = rabbitNotificationService;
+        this.batchSize = notificationProperties.getBatchSize();
+    }
+
+    /**
+     * replays batches until the spool is drained or a batch is not confirmed
+     *
+     * @return number of replayed notifications
+     */
+    @Scheduled(
+            fixedDelayString = "${rproc.notifications.spool.drain-interval:1000}",
+            initialDelayString = "${rproc.notifications.spool.drain-interval:1000}")
+    public int drain(){
+        int replayed = 0;
+        try{
+            int drained;
+            while ((drained = notificationSpool.drain(batchSize, rabbitNotificationService::send)) > 0){
+                replayed += drained;
+            }
+        }catch (RuntimeException e){
+            log.warn("couldn't replay spooled notifications due to exception: '{}', {} notifications are left",
+                    e.getMessage(), notificationSpool.size());
+        }
+
+        if (replayed > 0) log.info("{} spooled notifications replayed", replayed);
+        return replayed;
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.messaging;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.heavenhr.rproc.rproc.entities.Application;
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes notifications the way Jackson2JsonMessageConverter does ({"email":...,"body":...} with the same
+ * message properties) without reflection: field names are serialized once and every thread writes
+ * its messages with the same generator into the same buffer.
+ *
+ * The notification's body is rendered from a template which is split by its placeholders once
+ */
+@Component
+public class NotificationWriter {
+    private static final String BODY_TEMPLATE =
+            "Dear applicant,\r\n" +
+            "\r\n" +
+            "your application #'{applicationId}' to the position: '{jobTitle}' " +
+            "has changed the status to '{applicationStatus}'";
+
+    /**
+     * body's literal parts, the placeholders go in between
+     */
+    private static final String[] BODY_PARTS = compile(
+            BODY_TEMPLATE,
+            "{applicationId}",
+            "{jobTitle}",
+            "{applicationStatus}");
+    private static final int BODY_PARTS_LENGTH = BODY_TEMPLATE.length() -
+            "{applicationId}{jobTitle}{applicationStatus}".length();
+
+    private static final SerializedString EMAIL = new SerializedString("email");
+    private static final SerializedString BODY = new SerializedString("body");
+
+    private static final String TYPE_ID = Notification.class.getName();
+    private static final int INITIAL_BUFFER_SIZE = 512;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(Buffer::new);
+
+    private static String[] compile(String template, String... placeholders){
+        String[] parts = new String[placeholders.length + 1];
+        int from = 0;
+        for (int i = 0; i < placeholders.length; i++){
+            int index = template.indexOf(placeholders[i], from);
+            if (index < 0){
+                throw new IllegalStateException(
+                        String.format("placeholder '%s' is missing in the template", placeholders[i]));
+            }
+
+            parts[i] = template.substring(from, index);
+            from = index + placeholders[i].length();
+        }
+        parts[placeholders.length] = template.substring(from);
+
+        return parts;
+    }
+
+    /**
+     *
+     * @param application application with its offer loaded
+     * @return notification's body
+     */
+    public static String body(Application application){
+        return body(application.getId(), application.getOffer().getJobTitle(), application.getApplicationStatus());
+    }
+
+    public static String body(long applicationId, String jobTitle, ApplicationStatus applicationStatus){
+        String position = String.valueOf(jobTitle);
+        String status = String.valueOf(applicationStatus);
+
+        return new StringBuilder(BODY_PARTS_LENGTH + 20 + position.length() + status.length())
+                .append(BODY_PARTS[0])
+                .append(applicationId)
+                .append(BODY_PARTS[1])
+                .append(position)
+                .append(BODY_PARTS[2])
+                .append(status)
+                .append(BODY_PARTS[3])
+                .toString();
+    }
+
+    /**
+     * the message is the same Jackson2JsonMessageConverter creates for the notification
+     *
+     * @param notification
+     * @return
+     */
+    public Message toMessage(Notification notification){
+        byte[] bytes = buffers.get().write(notification);
+
+        MessageProperties messageProperties = new MessageProperties();
+        messageProperties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        messageProperties.setContentEncoding(StandardCharsets.UTF_8.name());
+        messageProperties.setContentLength(bytes.length);
+        messageProperties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, TYPE_ID);
+
+        return new Message(bytes, messageProperties);
+    }
+
+    /**
+     * the generator is never closed, messages are written one after another as root values without separators
+     * and the buffer is reset after each of them
+     */
+    private class Buffer {
+        private final ByteArrayBuilder bytes = new ByteArrayBuilder(INITIAL_BUFFER_SIZE);
+        private final JsonGenerator generator;
+
+        private Buffer(){
+            try{
+                generator = jsonFactory.createGenerator(bytes);
+            }catch (IOException e){
+                throw new IllegalStateException("couldn't create a json generator", e);
+            }
+            generator.setRootValueSeparator(null);
+        }
+
+        private byte[] write(Notification notification){
+            try{
+                generator.writeStartObject();
+                generator.writeFieldName(EMAIL);
+                generator.writeString(notification.getEmail());
+                generator.writeFieldName(BODY);
+                generator.writeString(notification.getBody());
+                generator.writeEndObject();
+                generator.flush();
+
+                return bytes.toByteArray();
+            }catch (IOException e){
+                //  the generator is left in the middle of the message
+                buffers.remove();
+                throw new MessageConversionException("couldn't write the notification: " + notification, e);
+            }finally{
+                bytes.reset();
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.messaging;
+
+import com.heavenhr.rproc.rproc.entities.Application;
+import com.heavenhr.rproc.rproc.entities.NotificationOutboxEntry;
+import com.heavenhr.rproc.rproc.repositories.NotificationOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Saves notifications to the outbox in the transaction of the status change,
+ * thus, a notification is saved if and only if the change is committed.
+ * NotificationOutboxRelay publishes saved notifications
+ */
+@Slf4j
+@Primary
+@Service
+@ConditionalOnProperty(name = "rproc.notifications.outbox.enabled", matchIfMissing = true)
+public class OutboxNotificationService implements ApplicationStatusNotificationService {
+    private final NotificationOutboxRepository notificationOutboxRepository;
+
+    @Autowired
+    public OutboxNotificationService(NotificationOutboxRepository notificationOutboxRepository){
+        this.notificationOutboxRepository = notificationOutboxRepository;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public void sendNotification(Application application){
+        notificationOutboxRepository.save(new NotificationOutboxEntry(new Notification(application)));
+    }
+
+    /**
+     * entries are inserted in batches
+     *
+     * @param applications
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public void sendNotifications(Collection<Application> applications){
+        List<NotificationOutboxEntry> entries = applications
+                .stream()
+                .map(application -> new NotificationOutboxEntry(new Notification(application)))
+                .collect(Collectors.toList());
+        notificationOutboxRepository.saveAll(entries);
+        log.info("{} notifications saved to the outbox", entries.size());
+    }
+}
@@ -3,35 +3,113 @@
  */
 package com.heavenhr.rproc.rproc.messaging;
 
-import com.heavenhr.rproc.rproc.entities.Application;
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
 import org.springframework.amqp.core.Message;
-import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes notifications to rabbitmq with publisher confirms (spring.rabbitmq.publisher-confirms must be set)
+ *
+ * If the spool is enabled notifications rabbitmq couldn't take are spooled and NotificationSpoolDrainer replays them.
+ * Notifications are spooled as well while the spool is not empty, so they are not published ahead of spooled ones.
+ *
+ * Notifications are routed by their application's status if the status' lane has its routing key
+ */
 @Slf4j
 @Service
-public class RabbitNotificationService implements ApplicationStatusNotificationService{
+@Profile("!" + LocalNotificationBroker.PROFILE)
+public class RabbitNotificationService implements NotificationBroker {
     private final RabbitTemplate rabbitTemplate;
+    private final NotificationWriter notificationWriter;
+    private final NotificationSpool notificationSpool;
+    private final Map<ApplicationStatus, String> routingKeys = new EnumMap<>(ApplicationStatus.class);
+    private final long confirmTimeout;
 
     @Autowired
-    public RabbitNotificationService(RabbitTemplate rabbitTemplate){
+    public RabbitNotificationService(
+            RabbitTemplate rabbitTemplate,
+            NotificationWriter notificationWriter,
+            ObjectProvider<NotificationSpool> notificationSpool,
+            NotificationProperties notificationProperties){
         this.rabbitTemplate = rabbitTemplate;
+        this.notificationWriter = notificationWriter;
+        this.notificationSpool = notificationSpool.getIfAvailable();
+        this.confirmTimeout = notificationProperties.getConfirmTimeout().toMillis();
+        for (ApplicationStatus applicationStatus: ApplicationStatus.values()){
+            String routingKey = notificationProperties.getLane(applicationStatus).getRoutingKey();
+            if (routingKey != null) routingKeys.put(applicationStatus, routingKey);
+        }
     }
 
-    public void sendNotification(Application application){
-        Notification notification = new Notification(application);
-        log.info("attempting to send a notification due to application status change: {}", notification);
+    /**
+     *
+     * @param notifications
+     * @throws AmqpException if notifications are neither confirmed nor spooled
+     */
+    @Override
+    public void publish(List<Notification> notifications){
+        if (notifications.isEmpty()) return;
+
+        if (notificationSpool == null){
+            send(notifications);
+            return;
+        }
+
+        if (notificationSpool.isEmpty()){
+            try{
+                send(notifications);
+                return;
+            }catch (AmqpException e){
+                log.warn("couldn't send {} notifications due to exception: '{}', spooling them",
+                        notifications.size(), e.getMessage());
+                if (!notificationSpool.append(notifications)) throw e;
+                return;
+            }
+        }
+
+        if (!notificationSpool.append(notifications)){
+            throw new AmqpException("notifications' spool is full");
+        }
+    }
+
+    /**
+     * all messages are sent over the same channel and confirmed together
+     *
+     * @param notifications
+     */
+    void send(List<Notification> notifications){
+        List<Message> messages = notifications.stream().map(this::toMessage).collect(Collectors.toList());
+        rabbitTemplate.invoke(operations -> {
+            for (int i = 0; i < messages.size(); i++){
+                operations.send(routingKey(notifications.get(i)), messages.get(i));
+            }
+            operations.waitForConfirmsOrDie(confirmTimeout);
+            return null;
+        });
+        log.info("{} notifications sent", messages.size());
+    }
+
+    private String routingKey(Notification notification){
+        String routingKey = notification.getApplicationStatus() == null ?
+                null : routingKeys.get(notification.getApplicationStatus());
 
-        MessageConverter messageConverter = rabbitTemplate.getMessageConverter();
-        MessageProperties messageProperties = new MessageProperties();
-        Message message = messageConverter.toMessage(
-                notification,
-                messageProperties);
+        return routingKey == null ? rabbitTemplate.getRoutingKey() : routingKey;
+    }
+
+    private Message toMessage(Notification notification){
+        log.info("attempting to send a notification due to application status change: {}", notification);
 
-        rabbitTemplate.send(message);
+        return notificationWriter.toMessage(notification);
     }
 }
@@ -0,0 +1,51 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.pagination;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor used for keyset pagination.
+ * Cursor holds the id of the last item of the previous page, clients should treat it as an opaque string
+ */
+public final class KeysetCursor {
+    private static final String PREFIX = "id:";
+
+    private KeysetCursor(){
+    }
+
+    public static String encode(long lastId){
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     *
+     * @param cursor
+     * @return id of the last seen item or 0 if cursor is empty (first page)
+     * @throws IllegalArgumentException if cursor cannot be decoded
+     */
+    public static long decode(String cursor){
+        if (cursor == null || cursor.isEmpty()) return 0;
+
+        try{
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!value.startsWith(PREFIX)){
+                throw new IllegalArgumentException(String.format("provided cursor is invalid: %s", cursor));
+            }
+
+            long lastId = Long.parseLong(value.substring(PREFIX.length()));
+            if (lastId < 0){
+                throw new IllegalArgumentException(String.format("provided cursor is invalid: %s", cursor));
+            }
+
+            return lastId;
+        }catch (IllegalArgumentException e){
+            //  NumberFormatException is IllegalArgumentException as well
+            throw new IllegalArgumentException(String.format("provided cursor is invalid: %s", cursor));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.pagination;
+
+import lombok.Getter;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.hateoas.Link;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * A single page of keyset pagination.
+ *
+ * Repositories are requested for size + 1 rows (see {@link #request(int)}),
+ * the extra row only tells that the next page exists and is never returned to a client
+ *
+ * @param <T>
+ */
+@Getter
+public class KeysetPage<T> {
+    public static final int DEFAULT_SIZE = 20;
+    public static final int MAX_SIZE = 100;
+
+    private final List<T> content;
+    /**
+     * cursor of the next page or null if this page is the last one
+     */
+    private final String nextCursor;
+
+    private KeysetPage(List<T> content, String nextCursor){
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean hasNext(){
+        return nextCursor != null;
+    }
+
+    /**
+     * link to the current page, it is built from the current request so filters, cursor and size are kept
+     *
+     * @return
+     */
+    public static Link selfLink(){
+        return new Link(ServletUriComponentsBuilder.fromCurrentRequest().toUriString(), Link.REL_SELF);
+    }
+
+    /**
+     * link to the next page, it is built from the current request so other request params are kept
+     *
+     * @return
+     * @throws IllegalStateException if there is no next page
+     */
+    public Link nextLink(){
+        if (!hasNext()) throw new IllegalStateException("this page is the last one");
+
+        return new Link(
+                ServletUriComponentsBuilder.fromCurrentRequest()
+                        .replaceQueryParam("cursor", nextCursor)
+                        .toUriString(),
+                Link.REL_NEXT);
+    }
+
+    /**
+     * builds repository page request for the page size requested by a client
+     *
+     * @param size
+     * @return
+     * @throws IllegalArgumentException if size is not positive
+     */
+    public static Pageable request(int size){
+        if (size <= 0){
+            throw new IllegalArgumentException(String.format("page size is invalid: %d", size));
+        }
+
+        return PageRequest.of(0, Math.min(size, MAX_SIZE) + 1);
+    }
+
+    /**
+     *
+     * @param rows rows fetched with {@link #request(int)}
+     * @param size page size requested by a client
+     * @param idExtractor
+     * @param <T>
+     * @return
+     */
+    public static <T> KeysetPage<T> of(List<T> rows, int size, ToLongFunction<T> idExtractor){
+        return withCursor(rows, size, row -> KeysetCursor.encode(idExtractor.applyAsLong(row)));
+    }
+
+    /**
+     * same as {@link #of(List, int, ToLongFunction)} for lists which are not ordered by id only
+     *
+     * @param rows rows fetched with {@link #request(int)}
+     * @param size page size requested by a client
+     * @param cursorExtractor encodes the position of a row, e.g. {@link TimeKeysetCursor#encode}
+     * @param <T>
+     * @return
+     */
+    public static <T> KeysetPage<T> withCursor(List<T> rows, int size, Function<T, String> cursorExtractor){
+        int pageSize = Math.min(size, MAX_SIZE);
+        if (rows.size() <= pageSize){
+            return new KeysetPage<>(rows, null);
+        }
+
+        List<T> content = rows.subList(0, pageSize);
+        return new KeysetPage<>(content, cursorExtractor.apply(content.get(pageSize - 1)));
+    }
+}
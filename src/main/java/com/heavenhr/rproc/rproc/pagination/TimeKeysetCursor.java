@@ -0,0 +1,70 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.pagination;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque cursor used for keyset pagination of lists ordered by date and id.
+ * Cursor holds the date and the id of the last item of the previous page,
+ * the id makes the position unique among items with the same date
+ */
+@Getter
+public final class TimeKeysetCursor {
+    /**
+     * start of lists which are not limited by date, it precedes any date stored by the service
+     */
+    public static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final String DATE_PREFIX = "at:";
+    private static final String ID_PREFIX = ",id:";
+
+    private final LocalDateTime dateTime;
+    private final long lastId;
+
+    private TimeKeysetCursor(LocalDateTime dateTime, long lastId){
+        this.dateTime = dateTime;
+        this.lastId = lastId;
+    }
+
+    public static String encode(LocalDateTime dateTime, long lastId){
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString((DATE_PREFIX + dateTime + ID_PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     *
+     * @param cursor
+     * @param start position of the first page, used if cursor is empty
+     * @return position of the last seen item or (start, 0) if cursor is empty (first page)
+     * @throws IllegalArgumentException if cursor cannot be decoded
+     */
+    public static TimeKeysetCursor decode(String cursor, LocalDateTime start){
+        if (cursor == null || cursor.isEmpty()) return new TimeKeysetCursor(start, 0);
+
+        try{
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int idIndex = value.indexOf(ID_PREFIX);
+            if (!value.startsWith(DATE_PREFIX) || idIndex < 0){
+                throw new IllegalArgumentException(String.format("provided cursor is invalid: %s", cursor));
+            }
+
+            LocalDateTime dateTime = LocalDateTime.parse(value.substring(DATE_PREFIX.length(), idIndex));
+            long lastId = Long.parseLong(value.substring(idIndex + ID_PREFIX.length()));
+            if (lastId < 0){
+                throw new IllegalArgumentException(String.format("provided cursor is invalid: %s", cursor));
+            }
+
+            return new TimeKeysetCursor(dateTime, lastId);
+        }catch (IllegalArgumentException | DateTimeParseException e){
+            throw new IllegalArgumentException(String.format("provided cursor is invalid: %s", cursor));
+        }
+    }
+}
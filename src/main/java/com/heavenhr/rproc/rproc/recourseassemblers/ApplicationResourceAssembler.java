@@ -5,20 +5,29 @@ package com.heavenhr.rproc.rproc.recourseassemblers;
 
 import com.heavenhr.rproc.rproc.controllers.ApplicationController;
 import com.heavenhr.rproc.rproc.entities.Application;
+import com.heavenhr.rproc.rproc.entities.ApplicationStatusHistoryItem;
+import com.heavenhr.rproc.rproc.entities.ApplicationSummary;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.Resource;
 import org.springframework.hateoas.ResourceAssembler;
 import org.springframework.stereotype.Component;
 
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
-
 @Component
 public class ApplicationResourceAssembler implements ResourceAssembler<Application, Resource<Application>> {
     @Override
     public Resource<Application> toResource(Application application){
-        return new Resource<>(
-                application,
-                linkTo(methodOn(ApplicationController.class).getApplication(application.getId())).withSelfRel()
-        );
+        return new Resource<>(application, selfLink(application.getId()));
+    }
+
+    public Resource<ApplicationSummary> toResource(ApplicationSummary applicationSummary){
+        return new Resource<>(applicationSummary, selfLink(applicationSummary.getId()));
+    }
+
+    public Resource<ApplicationStatusHistoryItem> toResource(ApplicationStatusHistoryItem historyItem){
+        return new Resource<>(historyItem, selfLink(historyItem.getApplicationId()).withRel("application"));
+    }
+
+    private Link selfLink(long applicationId){
+        return new Link(LinkPrefixes.of(ApplicationController.class) + "/" + applicationId);
     }
 }
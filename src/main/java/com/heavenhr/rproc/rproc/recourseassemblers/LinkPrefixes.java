@@ -0,0 +1,42 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.recourseassemblers;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
+
+/**
+ * Resolves controllers' base links (e.g. http://host/offers) once per request.
+ *
+ * linkTo(methodOn(...)) invokes a proxy and expands the uri template for every resource,
+ * assemblers use the cached prefix and only append ids to it
+ */
+final class LinkPrefixes {
+    private static final String ATTRIBUTE_PREFIX = LinkPrefixes.class.getName() + ".";
+
+    private LinkPrefixes(){
+    }
+
+    static String of(Class<?> controller){
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes == null){
+            return resolve(controller);
+        }
+
+        String attribute = ATTRIBUTE_PREFIX + controller.getName();
+        String prefix = (String) requestAttributes.getAttribute(attribute, RequestAttributes.SCOPE_REQUEST);
+        if (prefix == null){
+            prefix = resolve(controller);
+            requestAttributes.setAttribute(attribute, prefix, RequestAttributes.SCOPE_REQUEST);
+        }
+
+        return prefix;
+    }
+
+    private static String resolve(Class<?> controller){
+        return linkTo(controller).toUri().toString();
+    }
+}
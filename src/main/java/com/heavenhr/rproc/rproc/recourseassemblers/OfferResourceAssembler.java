@@ -5,20 +5,21 @@ package com.heavenhr.rproc.rproc.recourseassemblers;
 
 import com.heavenhr.rproc.rproc.controllers.OfferController;
 import com.heavenhr.rproc.rproc.entities.Offer;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.Resource;
 import org.springframework.hateoas.ResourceAssembler;
 import org.springframework.stereotype.Component;
 
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
-
 @Component
 public class OfferResourceAssembler implements ResourceAssembler<Offer, Resource<Offer>> {
     @Override
     public Resource<Offer> toResource(Offer offer){
+        String self = LinkPrefixes.of(OfferController.class) + "/" + offer.getId();
+
         return new Resource<>(
                 offer,
-                linkTo(methodOn(OfferController.class).getOfferById(offer.getId())).withSelfRel()
+                new Link(self),
+                new Link(self + "/funnel", "funnel")
         );
     }
 }
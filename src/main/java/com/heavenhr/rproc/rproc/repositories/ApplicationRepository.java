@@ -4,11 +4,233 @@
 package com.heavenhr.rproc.rproc.repositories;
 
 import com.heavenhr.rproc.rproc.entities.Application;
+import com.heavenhr.rproc.rproc.entities.ApplicationPartial;
+import com.heavenhr.rproc.rproc.entities.ApplicationStatusCount;
+import com.heavenhr.rproc.rproc.entities.ApplicationSummary;
 import com.heavenhr.rproc.rproc.entities.Offer;
-import org.springframework.data.repository.CrudRepository;
+import com.heavenhr.rproc.rproc.entities.VersionedId;
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface ApplicationRepository extends CrudRepository<Application, Integer> {
-    Iterable<Application> findAllByOffer(Offer offer);
+public interface ApplicationRepository extends JpaRepository<Application, Long> {
+    /**
+     * number of rows fetched from the database per round trip while streaming
+     */
+    int STREAM_FETCH_SIZE = 500;
+
+    long countByOffer(Offer offer);
+
+    long countByApplicationStatus(ApplicationStatus applicationStatus);
+
+    long countByOfferAndApplicationStatus(Offer offer, ApplicationStatus applicationStatus);
+
+    /**
+     * number of the offer's applications in every status, used to compute the offer's funnel from scratch
+     *
+     * @param offerId
+     * @return
+     */
+    @Query("select new com.heavenhr.rproc.rproc.entities.ApplicationStatusCount(a.applicationStatus, count(a)) " +
+            "from Application a " +
+            "where a.offer.id = :offerId " +
+            "group by a.applicationStatus")
+    List<ApplicationStatusCount> countByOfferIdGroupByApplicationStatus(@Param("offerId") long offerId);
+
+    /**
+     * keyset pagination: applications with id greater than the last seen one.
+     * Summaries are selected directly, so a page is loaded with a single statement
+     *
+     * @param id last seen application id, 0 for the first page
+     * @param pageable
+     * @return
+     */
+    @Query("select new com.heavenhr.rproc.rproc.entities.ApplicationSummary(" +
+                "a.id, a.email, a.uploadHash, a.applicationStatus, a.offer.id) " +
+            "from Application a " +
+            "where a.id > :id " +
+            "order by a.id")
+    List<ApplicationSummary> findSummariesByIdGreaterThan(@Param("id") long id, Pageable pageable);
+
+    @Query("select new com.heavenhr.rproc.rproc.entities.ApplicationSummary(" +
+                "a.id, a.email, a.uploadHash, a.applicationStatus, a.offer.id) " +
+            "from Application a " +
+            "where a.offer = :offer and a.id > :id " +
+            "order by a.id")
+    List<ApplicationSummary> findSummariesByOfferAndIdGreaterThan(
+            @Param("offer") Offer offer,
+            @Param("id") long id,
+            Pageable pageable);
+
+    @Query("select new com.heavenhr.rproc.rproc.entities.ApplicationSummary(" +
+                "a.id, a.email, a.uploadHash, a.applicationStatus, a.offer.id) " +
+            "from Application a " +
+            "where a.applicationStatus = :applicationStatus and a.id > :id " +
+            "order by a.id")
+    List<ApplicationSummary> findSummariesByApplicationStatusAndIdGreaterThan(
+            @Param("applicationStatus") ApplicationStatus applicationStatus,
+            @Param("id") long id,
+            Pageable pageable);
+
+    /**
+     * an offer's applications with the status, range scan of idx_applications_offer_status
+     *
+     * @param offer
+     * @param applicationStatus
+     * @param id last seen application id, 0 for the first page
+     * @param pageable
+     * @return
+     */
+    @Query("select new com.heavenhr.rproc.rproc.entities.ApplicationSummary(" +
+                "a.id, a.email, a.uploadHash, a.applicationStatus, a.offer.id) " +
+            "from Application a " +
+            "where a.offer = :offer and a.applicationStatus = :applicationStatus and a.id > :id " +
+            "order by a.id")
+    List<ApplicationSummary> findSummariesByOfferAndApplicationStatusAndIdGreaterThan(
+            @Param("offer") Offer offer,
+            @Param("applicationStatus") ApplicationStatus applicationStatus,
+            @Param("id") long id,
+            Pageable pageable);
+
+    /**
+     * versions of the applications' page returned by findSummariesByIdGreaterThan(),
+     * applications themselves are not loaded
+     *
+     * @param id last seen application id, 0 for the first page
+     * @param pageable
+     * @return
+     */
+    @Query("select new com.heavenhr.rproc.rproc.entities.VersionedId(a.id, a.version) " +
+            "from Application a " +
+            "where a.id > :id " +
+            "order by a.id")
+    List<VersionedId> findVersionsByIdGreaterThan(@Param("id") long id, Pageable pageable);
+
+    @Query("select new com.heavenhr.rproc.rproc.entities.VersionedId(a.id, a.version) " +
+            "from Application a " +
+            "where a.offer = :offer and a.id > :id " +
+            "order by a.id")
+    List<VersionedId> findVersionsByOfferAndIdGreaterThan(
+            @Param("offer") Offer offer,
+            @Param("id") long id,
+            Pageable pageable);
+
+    @Query("select new com.heavenhr.rproc.rproc.entities.VersionedId(a.id, a.version) " +
+            "from Application a " +
+            "where a.applicationStatus = :applicationStatus and a.id > :id " +
+            "order by a.id")
+    List<VersionedId> findVersionsByApplicationStatusAndIdGreaterThan(
+            @Param("applicationStatus") ApplicationStatus applicationStatus,
+            @Param("id") long id,
+            Pageable pageable);
+
+    @Query("select new com.heavenhr.rproc.rproc.entities.VersionedId(a.id, a.version) " +
+            "from Application a " +
+            "where a.offer = :offer and a.applicationStatus = :applicationStatus and a.id > :id " +
+            "order by a.id")
+    List<VersionedId> findVersionsByOfferAndApplicationStatusAndIdGreaterThan(
+            @Param("offer") Offer offer,
+            @Param("applicationStatus") ApplicationStatus applicationStatus,
+            @Param("id") long id,
+            Pageable pageable);
+
+    @Query("select a.version from Application a where a.id = :id")
+    Optional<Long> findVersionById(@Param("id") long id);
+
+    /**
+     * finds already submitted pairs of email and offer among the given ones with a single statement.
+     * The result may contain pairs which were not requested (email submitted to another requested offer)
+     *
+     * @param offerIds
+     * @param emails
+     * @return
+     */
+    @Query("select new com.heavenhr.rproc.rproc.entities.ApplicationPartial(a.email, a.offer.id) " +
+            "from Application a " +
+            "where a.offer.id in :offerIds and a.email in :emails")
+    List<ApplicationPartial> findSubmittedByOfferIdInAndEmailIn(
+            @Param("offerIds") Collection<Long> offerIds,
+            @Param("emails") Collection<String> emails);
+
+    /**
+     * checks the (offer, email) pair with the unique constraint's index
+     *
+     * @param offerId
+     * @param email
+     * @return
+     */
+    boolean existsByOfferIdAndEmail(long offerId, String email);
+
+    /**
+     * streams all submitted pairs of email and offer, used to warm up SubmittedEmailIndex.
+     * Must be called within a transaction and the stream must be closed after use
+     *
+     * @return
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("select new com.heavenhr.rproc.rproc.entities.ApplicationPartial(a.email, a.offer.id) " +
+            "from Application a")
+    Stream<ApplicationPartial> streamSubmitted();
+
+    /**
+     * loads application together with its offer in a single statement
+     *
+     * @param id
+     * @return
+     */
+    @EntityGraph(attributePaths = "offer")
+    Optional<Application> findWithOfferById(long id);
+
+    /**
+     * loads applications together with their offers in a single statement
+     *
+     * @param ids
+     * @return
+     */
+    @EntityGraph(attributePaths = "offer")
+    List<Application> findAllWithOfferByIdIn(Collection<Long> ids);
+
+    /**
+     * streams applications for an export, all parameters are optional (null means no filter).
+     * Must be called within a transaction and the stream must be closed after use
+     *
+     * @param offer
+     * @param applicationStatus
+     * @param appliedFrom applications submitted at or after the time
+     * @param appliedTo applications submitted before the time
+     * @return
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("select new com.heavenhr.rproc.rproc.entities.ApplicationSummary(" +
+                "a.id, a.email, a.uploadHash, a.applicationStatus, a.offer.id) " +
+            "from Application a " +
+            "where (:offer is null or a.offer = :offer) " +
+            "and (:applicationStatus is null or a.applicationStatus = :applicationStatus) " +
+            "and (:appliedFrom is null or exists (" +
+                "select h.id from ApplicationStatusHistory h " +
+                "where h.application = a " +
+                "and h.applicationStatus = com.heavenhr.rproc.rproc.enums.ApplicationStatus.APPLIED " +
+                "and h.dateTime >= :appliedFrom)) " +
+            "and (:appliedTo is null or exists (" +
+                "select h.id from ApplicationStatusHistory h " +
+                "where h.application = a " +
+                "and h.applicationStatus = com.heavenhr.rproc.rproc.enums.ApplicationStatus.APPLIED " +
+                "and h.dateTime < :appliedTo)) " +
+            "order by a.id")
+    Stream<ApplicationSummary> streamAllForExport(
+            @Param("offer") Offer offer,
+            @Param("applicationStatus") ApplicationStatus applicationStatus,
+            @Param("appliedFrom") LocalDateTime appliedFrom,
+            @Param("appliedTo") LocalDateTime appliedTo);
 }
@@ -0,0 +1,60 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.repositories;
+
+import com.heavenhr.rproc.rproc.entities.ApplicationStatusHistory;
+import com.heavenhr.rproc.rproc.entities.ApplicationStatusHistoryItem;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ApplicationStatusHistoryRepository extends JpaRepository<ApplicationStatusHistory, Long> {
+    /**
+     * keyset pagination of an application's history in chronological order,
+     * range scan of idx_app_status_history_application_date.
+     * Items are selected directly, so neither the application nor its histories are loaded
+     *
+     * @param applicationId
+     * @param dateTime date of the last seen item
+     * @param id id of the last seen item, 0 for the first page
+     * @param pageable
+     * @return
+     */
+    @Query("select new com.heavenhr.rproc.rproc.entities.ApplicationStatusHistoryItem(" +
+                "h.id, h.dateTime, h.applicationStatus, h.application.id) " +
+            "from ApplicationStatusHistory h " +
+            "where h.application.id = :applicationId " +
+                "and (h.dateTime > :dateTime or (h.dateTime = :dateTime and h.id > :id)) " +
+            "order by h.dateTime, h.id")
+    List<ApplicationStatusHistoryItem> findItemsByApplicationIdAfter(
+            @Param("applicationId") long applicationId,
+            @Param("dateTime") LocalDateTime dateTime,
+            @Param("id") long id,
+            Pageable pageable);
+
+    /**
+     * keyset pagination of all applications' histories in chronological order
+     *
+     * @param dateTime date of the last seen item, the beginning of the range for the first page
+     * @param id id of the last seen item, 0 for the first page
+     * @param to the end of the range (exclusive)
+     * @param pageable
+     * @return
+     */
+    @Query("select new com.heavenhr.rproc.rproc.entities.ApplicationStatusHistoryItem(" +
+                "h.id, h.dateTime, h.applicationStatus, h.application.id) " +
+            "from ApplicationStatusHistory h " +
+            "where h.dateTime < :to " +
+                "and (h.dateTime > :dateTime or (h.dateTime = :dateTime and h.id > :id)) " +
+            "order by h.dateTime, h.id")
+    List<ApplicationStatusHistoryItem> findItemsAfter(
+            @Param("dateTime") LocalDateTime dateTime,
+            @Param("id") long id,
+            @Param("to") LocalDateTime to,
+            Pageable pageable);
+}
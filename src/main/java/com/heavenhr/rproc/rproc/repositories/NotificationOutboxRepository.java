@@ -0,0 +1,79 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.repositories;
+
+import com.heavenhr.rproc.rproc.entities.NotificationOutboxEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutboxEntry, Long> {
+    /**
+     * the oldest not sent entries, range scan of idx_notification_outbox_sent
+     *
+     * @param pageable
+     * @return
+     */
+    @Query("select e from NotificationOutboxEntry e where e.sentAt is null order by e.id")
+    List<NotificationOutboxEntry> findPending(Pageable pageable);
+
+    /**
+     * the latest pending entry of every application which has no pending entries saved after the time,
+     * i.e. applications whose status has not changed since then
+     *
+     * @param createdAt
+     * @param pageable
+     * @return
+     */
+    @Query("select e from NotificationOutboxEntry e " +
+            "where e.sentAt is null and e.createdAt <= :createdAt " +
+                "and not exists (select n.id from NotificationOutboxEntry n " +
+                    "where n.applicationId = e.applicationId and n.sentAt is null and n.id > e.id) " +
+            "order by e.id")
+    List<NotificationOutboxEntry> findLatestPendingCreatedBefore(
+            @Param("createdAt") LocalDateTime createdAt,
+            Pageable pageable);
+
+    long countBySentAtIsNull();
+
+    @Transactional
+    @Modifying
+    @Query("update NotificationOutboxEntry e set e.sentAt = :sentAt where e.id in :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+
+    /**
+     * marks sent all pending entries of the applications saved before the time
+     *
+     * @param applicationIds
+     * @param createdAt
+     * @param sentAt
+     * @return
+     */
+    @Transactional
+    @Modifying
+    @Query("update NotificationOutboxEntry e set e.sentAt = :sentAt " +
+            "where e.sentAt is null and e.applicationId in :applicationIds and e.createdAt <= :createdAt")
+    int markSentByApplications(
+            @Param("applicationIds") Collection<Long> applicationIds,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("sentAt") LocalDateTime sentAt);
+
+    /**
+     * removes entries sent before the time
+     *
+     * @param sentAt
+     * @return
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from NotificationOutboxEntry e where e.sentAt < :sentAt")
+    int deleteSentBefore(@Param("sentAt") LocalDateTime sentAt);
+}
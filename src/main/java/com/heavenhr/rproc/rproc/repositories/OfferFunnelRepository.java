@@ -0,0 +1,23 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.repositories;
+
+import com.heavenhr.rproc.rproc.entities.OfferFunnel;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.List;
+
+/**
+ * funnels are created with their offers, counters are read and updated by OfferRepository
+ */
+public interface OfferFunnelRepository extends CrudRepository<OfferFunnel, Long> {
+    /**
+     * offers created before funnels had their own table
+     *
+     * @return
+     */
+    @Query("select o.id from Offer o where not exists (select f.offerId from OfferFunnel f where f.offerId = o.id)")
+    List<Long> findOfferIdsWithoutFunnel();
+}
@@ -4,8 +4,137 @@
 package com.heavenhr.rproc.rproc.repositories;
 
 
+import com.heavenhr.rproc.rproc.caching.CacheConfig;
 import com.heavenhr.rproc.rproc.entities.Offer;
-import org.springframework.data.repository.CrudRepository;
+import com.heavenhr.rproc.rproc.entities.OfferFunnel;
+import com.heavenhr.rproc.rproc.entities.VersionedId;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface OfferRepository extends CrudRepository<Offer, Integer> {
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface OfferRepository extends PagingAndSortingRepository<Offer, Long> {
+    /**
+     * results are kept in the query cache until offers are changed
+     *
+     * @return
+     */
+    @Override
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+    Iterable<Offer> findAll();
+
+    /**
+     * keyset pagination: offers with id greater than the last seen one.
+     * Results are kept in the query cache until offers are changed
+     *
+     * @param id last seen offer id, 0 for the first page
+     * @param pageable
+     * @return
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+    List<Offer> findAllByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    /**
+     * versions of the offers' page returned by findAllByIdGreaterThanOrderByIdAsc(), offers themselves are not loaded.
+     * An offer's version is the sum of its own and its funnel's versions, both of them are only incremented.
+     * Results are not cached as funnels change on every submission
+     *
+     * @param id last seen offer id, 0 for the first page
+     * @param pageable
+     * @return
+     */
+    @Query("select new com.heavenhr.rproc.rproc.entities.VersionedId(o.id, o.version + coalesce(f.version, 0)) " +
+            "from Offer o left join OfferFunnel f on f.offerId = o.id " +
+            "where o.id > :id " +
+            "order by o.id")
+    List<VersionedId> findVersionsByIdGreaterThan(@Param("id") long id, Pageable pageable);
+
+    /**
+     * cached offer lookup, missing offers are not cached.
+     * Returned offer is detached and its funnel may be outdated,
+     * thus, it should be used to reference the offer only and never be modified or saved
+     *
+     * @param offerId
+     * @return
+     */
+    @Cacheable(cacheNames = CacheConfig.OFFERS, unless = "#result == null")
+    @Query("select o from Offer o where o.id = :offerId")
+    Optional<Offer> findCachedById(@Param("offerId") long offerId);
+
+    /**
+     * the offer's version is the sum of its own and its funnel's versions, so the ETag changes with the funnel
+     *
+     * @param offerId
+     * @return
+     */
+    @Query("select o.version + coalesce(f.version, 0) " +
+            "from Offer o left join OfferFunnel f on f.offerId = o.id " +
+            "where o.id = :offerId")
+    Optional<Long> findVersionById(@Param("offerId") long offerId);
+
+    @Query("select f from OfferFunnel f where f.offerId = :offerId")
+    Optional<OfferFunnel> findFunnelById(@Param("offerId") long offerId);
+
+    /**
+     * funnels of a page of offers in a single statement, offers created before funnels were maintained
+     * have none until OfferFunnelBackfill creates them
+     *
+     * @param offerIds should not be empty
+     * @return
+     */
+    @Query("select f from OfferFunnel f where f.offerId in :offerIds")
+    List<OfferFunnel> findFunnelsByOfferIdIn(@Param("offerIds") Collection<Long> offerIds);
+
+    /**
+     * atomically adds delta to the offer's counters, thus, concurrent updates are not lost.
+     * The funnel's version is incremented, the offer itself is not changed.
+     * Should be called within the transaction the applications are changed in.
+     * Funnels are not cached, so the offer stays in the second-level cache and cached offers' queries stay valid
+     *
+     * @param offerId
+     * @param delta
+     * @return number of updated funnels
+     */
+    @Transactional
+    default int updateFunnel(long offerId, OfferFunnel delta){
+        return addToFunnel(
+                offerId,
+                delta.getTotal(),
+                delta.getApplied(),
+                delta.getInvited(),
+                delta.getRejected(),
+                delta.getHired());
+    }
+
+    /**
+     * use updateFunnel() instead. Counters are plain parameters, not SpEL expressions of the delta (:#{#delta.total}),
+     * as every SpEL parameter looks up evaluation context extensions among all beans on every call,
+     * which took most of a status change's time
+     */
+    @Transactional
+    @Modifying
+    @Query("update OfferFunnel f set " +
+            "f.total = f.total + :total, " +
+            "f.applied = f.applied + :applied, " +
+            "f.invited = f.invited + :invited, " +
+            "f.rejected = f.rejected + :rejected, " +
+            "f.hired = f.hired + :hired, " +
+            "f.version = f.version + 1 " +
+            "where f.offerId = :offerId")
+    int addToFunnel(
+            @Param("offerId") long offerId,
+            @Param("total") int total,
+            @Param("applied") int applied,
+            @Param("invited") int invited,
+            @Param("rejected") int rejected,
+            @Param("hired") int hired);
 }
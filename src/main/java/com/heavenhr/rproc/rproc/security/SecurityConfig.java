@@ -32,6 +32,7 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 .antMatchers("/offers/**").authenticated()
                 .antMatchers(HttpMethod.PATCH, "/applications/*/status").permitAll()
                 .antMatchers("/applications*", "/applications/**", "/h2-console/**").authenticated()
+                .antMatchers("/actuator/**").authenticated()
                 .antMatchers("/", "/**").denyAll()
             .and()
                 .formLogin();
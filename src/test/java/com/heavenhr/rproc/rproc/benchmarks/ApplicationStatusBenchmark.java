@@ -0,0 +1,172 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.heavenhr.rproc.rproc.entities.Application;
+import com.heavenhr.rproc.rproc.entities.ApplicationStatusHistory;
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the if/else chain Application.setApplicationStatus() used to check flows
+ * with ApplicationStatus' transition table. All pairs of statuses (null included) are checked per invocation.
+ *
+ * The whole status change (null -> APPLIED -> INVITED -> HIRED of a new application) is compared as well,
+ * the previous one logged every change and histories at INFO level.
+ * Both log to the same appender with INFO level which discards the output.
+ *
+ * Run with (-prof gc shows allocations):
+ *  mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.heavenhr.rproc.rproc.benchmarks.ApplicationStatusBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ApplicationStatusBenchmark {
+    private ApplicationStatus[] statuses;
+
+    private static final ApplicationStatus[] FLOW = {
+            ApplicationStatus.APPLIED,
+            ApplicationStatus.INVITED,
+            ApplicationStatus.HIRED};
+
+    private static final org.slf4j.Logger legacyLog = LoggerFactory.getLogger("benchmarks.legacy.Application");
+
+    @Setup
+    public void setup(){
+        ApplicationStatus[] values = ApplicationStatus.values();
+        statuses = new ApplicationStatus[values.length + 1];
+        System.arraycopy(values, 0, statuses, 1, values.length);
+
+        LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} %5p [%t] %-40.40logger{39} : %m%n");
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(loggerContext);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(new OutputStream(){
+            @Override
+            public void write(int b){
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len){
+            }
+        });
+        appender.start();
+
+        for (String name: new String[]{Application.class.getName(), ApplicationStatusHistory.class.getName(), "benchmarks.legacy"}){
+            Logger logger = loggerContext.getLogger(name);
+            logger.detachAndStopAllAppenders();
+            logger.addAppender(appender);
+            logger.setLevel(Level.INFO);
+            logger.setAdditive(false);
+        }
+    }
+
+    /**
+     * the way flows were checked before the transition table, logging is left out
+     */
+    private static boolean isTransitionAllowedChain(ApplicationStatus from, ApplicationStatus to){
+        if (from == to){
+            return false;
+        }
+
+        if (from == null){
+            return to == ApplicationStatus.APPLIED;
+        }else if (from == ApplicationStatus.APPLIED){
+            return (to == ApplicationStatus.INVITED) || (to == ApplicationStatus.REJECTED);
+        }else if (from == ApplicationStatus.INVITED){
+            return (to == ApplicationStatus.HIRED) || (to == ApplicationStatus.REJECTED);
+        }else{
+            return false;
+        }
+    }
+
+    @Benchmark
+    public void chain(Blackhole blackhole){
+        for (ApplicationStatus from: statuses){
+            for (ApplicationStatus to: statuses){
+                blackhole.consume(isTransitionAllowedChain(from, to));
+            }
+        }
+    }
+
+    @Benchmark
+    public void table(Blackhole blackhole){
+        for (ApplicationStatus from: statuses){
+            for (ApplicationStatus to: statuses){
+                blackhole.consume(ApplicationStatus.isTransitionAllowed(from, to));
+            }
+        }
+    }
+
+    /**
+     * the way status was changed before: chain of checks, INFO logging and iterating histories on every change
+     */
+    private static void setApplicationStatusLegacy(Application application, ApplicationStatus[] status, ApplicationStatus applicationStatus){
+        if (!isTransitionAllowedChain(status[0], applicationStatus)){
+            throw new IllegalArgumentException("Application status is incorrect");
+        }
+
+        legacyLog.info("application status changed from '{}' to '{}'", status[0], applicationStatus);
+        status[0] = applicationStatus;
+
+        legacyLog.info("history items for application status: {}", application.getApplicationStatusHistories().size());
+        ApplicationStatusHistory applicationStatusHistory = new ApplicationStatusHistory();
+        applicationStatusHistory.setApplicationStatus(applicationStatus);
+        applicationStatusHistory.setApplication(application);
+
+        legacyLog.info("history items for application status: {}", application.getApplicationStatusHistories().size());
+        application.getApplicationStatusHistories().forEach(h -> legacyLog.info("history item '{}'", h));
+    }
+
+    @Benchmark
+    public Application flowLegacy(){
+        Application application = new Application();
+        ApplicationStatus[] status = new ApplicationStatus[1];
+        for (ApplicationStatus applicationStatus: FLOW){
+            setApplicationStatusLegacy(application, status, applicationStatus);
+        }
+
+        return application;
+    }
+
+    @Benchmark
+    public Application flowTable(){
+        Application application = new Application();
+        for (ApplicationStatus applicationStatus: FLOW){
+            application.setApplicationStatus(applicationStatus);
+        }
+
+        return application;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ApplicationStatusBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.benchmarks;
+
+import com.heavenhr.rproc.rproc.entities.Application;
+import com.heavenhr.rproc.rproc.entities.Offer;
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import com.heavenhr.rproc.rproc.messaging.Notification;
+import com.heavenhr.rproc.rproc.messaging.NotificationWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the way notifications' messages were created (body concatenation and Jackson2JsonMessageConverter
+ * with new MessageProperties) with NotificationWriter's precompiled template and streaming generator.
+ *
+ * Run with (-prof gc shows allocations):
+ *  mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.heavenhr.rproc.rproc.benchmarks.NotificationWriterBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class NotificationWriterBenchmark {
+    private Application application;
+    private Notification notification;
+
+    private final MessageConverter messageConverter = new Jackson2JsonMessageConverter();
+    private final NotificationWriter notificationWriter = new NotificationWriter();
+
+    @Setup
+    public void setup(){
+        Offer offer = new Offer();
+        offer.setId(1);
+        offer.setJobTitle("Senior Java Developer");
+
+        application = new Application();
+        application.setId(123456);
+        application.setEmail("applicant@email.com");
+        application.setOffer(offer);
+        application.setApplicationStatus(ApplicationStatus.APPLIED);
+        application.setApplicationStatus(ApplicationStatus.INVITED);
+
+        notification = new Notification(application);
+    }
+
+    /**
+     * the way Notification built its body before the template
+     */
+    private static String bodyConcatenation(Application application){
+        return "Dear applicant,\r\n" +
+                "\r\n" +
+                "your application #'" + application.getId() + "' to the position: '" +
+                application.getOffer().getJobTitle() + "' " +
+                "has changed the status to '" + application.getApplicationStatus() + "'";
+    }
+
+    @Benchmark
+    public String bodyConcatenation(){
+        return bodyConcatenation(application);
+    }
+
+    @Benchmark
+    public String bodyTemplate(){
+        return NotificationWriter.body(application);
+    }
+
+    @Benchmark
+    public Message messageConverter(){
+        return messageConverter.toMessage(notification, new MessageProperties());
+    }
+
+    @Benchmark
+    public Message messageWriter(){
+        return notificationWriter.toMessage(notification);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(NotificationWriterBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
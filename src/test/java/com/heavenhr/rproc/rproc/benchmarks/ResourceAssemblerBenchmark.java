@@ -0,0 +1,122 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.benchmarks;
+
+import com.heavenhr.rproc.rproc.controllers.ApplicationController;
+import com.heavenhr.rproc.rproc.controllers.OfferController;
+import com.heavenhr.rproc.rproc.entities.Application;
+import com.heavenhr.rproc.rproc.entities.Offer;
+import com.heavenhr.rproc.rproc.recourseassemblers.ApplicationResourceAssembler;
+import com.heavenhr.rproc.rproc.recourseassemblers.OfferResourceAssembler;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.hateoas.Resource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
+
+/**
+ * Compares linkTo(methodOn(...)) links (the way assemblers used to build them)
+ * with the assemblers' cached link prefixes.
+ *
+ * Every invocation is a new request assembling one page of resources.
+ *
+ * Run with:
+ *  mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.heavenhr.rproc.rproc.benchmarks.ResourceAssemblerBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ResourceAssemblerBenchmark {
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private List<Offer> offers;
+    private List<Application> applications;
+
+    private final OfferResourceAssembler offerResourceAssembler = new OfferResourceAssembler();
+    private final ApplicationResourceAssembler applicationResourceAssembler = new ApplicationResourceAssembler();
+
+    @Setup
+    public void setup(){
+        offers = new ArrayList<>(pageSize);
+        applications = new ArrayList<>(pageSize);
+        for (int i = 1; i <= pageSize; i++){
+            Offer offer = new Offer();
+            offer.setId(i);
+            offers.add(offer);
+
+            Application application = new Application();
+            application.setId(i);
+            applications.add(application);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void newRequest(){
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/offers");
+        request.setServerName("rproc.example.com");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @TearDown(Level.Invocation)
+    public void endRequest(){
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public void offersMethodOn(Blackhole blackhole){
+        for (Offer offer: offers){
+            blackhole.consume(new Resource<>(
+                    offer,
+                    linkTo(methodOn(OfferController.class).getOfferById(offer.getId(), null)).withSelfRel(),
+                    linkTo(methodOn(OfferController.class).getOfferFunnel(offer.getId())).withRel("funnel")
+            ));
+        }
+    }
+
+    @Benchmark
+    public void offersAssembler(Blackhole blackhole){
+        for (Offer offer: offers){
+            blackhole.consume(offerResourceAssembler.toResource(offer));
+        }
+    }
+
+    @Benchmark
+    public void applicationsMethodOn(Blackhole blackhole){
+        for (Application application: applications){
+            blackhole.consume(new Resource<>(
+                    application,
+                    linkTo(methodOn(ApplicationController.class).getApplication(application.getId(), null)).withSelfRel()
+            ));
+        }
+    }
+
+    @Benchmark
+    public void applicationsAssembler(Blackhole blackhole){
+        for (Application application: applications){
+            blackhole.consume(applicationResourceAssembler.toResource(application));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ResourceAssemblerBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
@@ -0,0 +1,252 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.bulk;
+
+import com.heavenhr.rproc.rproc.duplicates.SubmittedEmailIndex;
+import com.heavenhr.rproc.rproc.entities.Application;
+import com.heavenhr.rproc.rproc.entities.ApplicationPartial;
+import com.heavenhr.rproc.rproc.entities.Offer;
+import com.heavenhr.rproc.rproc.entities.OfferFunnel;
+import com.heavenhr.rproc.rproc.entities.ApplicationStatusHistory;
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import com.heavenhr.rproc.rproc.messaging.ApplicationStatusNotificationService;
+import com.heavenhr.rproc.rproc.repositories.OfferRepository;
+import com.heavenhr.rproc.rproc.storage.StorageService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import({ApplicationBulkService.class, SubmittedEmailIndex.class})
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class ApplicationBulkServiceTest {
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ApplicationBulkService applicationBulkService;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private SubmittedEmailIndex submittedEmailIndex;
+
+    @MockBean
+    private StorageService storageService;
+
+    @MockBean
+    private ApplicationStatusNotificationService notificationService;
+
+    private Offer offer1, offer2;
+
+    private Offer createOffer(String jobTitle){
+        Offer offer = new Offer();
+        offer.setJobTitle(jobTitle);
+
+        return testEntityManager.persist(offer);
+    }
+
+    @Before
+    public void createEntities(){
+        offer1 = createOffer("bulk job title1");
+        offer2 = createOffer("bulk job title2");
+
+        Application application = new Application();
+        application.setEmail("submitted@email.com");
+        application.setOffer(offer1);
+        testEntityManager.persistAndFlush(application);
+        testEntityManager.clear();
+        //  the index is warmed up on startup, applications created bypassing the services must be put explicitly
+        submittedEmailIndex.put(offer1.getId(), application.getEmail());
+    }
+
+    @Test
+    public void testSubmitWithResults(){
+        List<BulkSubmissionResult> results = applicationBulkService.submit(Arrays.asList(
+                new ApplicationPartial("new1@email.com", offer1.getId()),
+                new ApplicationPartial("submitted@email.com", offer1.getId()),
+                new ApplicationPartial("submitted@email.com", offer2.getId()),
+                new ApplicationPartial("new1@email.com", offer1.getId()),
+                new ApplicationPartial("new2@email.com", 100500),
+                new ApplicationPartial("invalid", offer2.getId()),
+                new ApplicationPartial("new2@email.com", offer2.getId())));
+
+        assertEquals(7, results.size());
+        for (int i = 0; i < results.size(); i++){
+            assertEquals(i, results.get(i).getIndex());
+        }
+        assertEquals(BulkSubmissionResult.Status.CREATED, results.get(0).getStatus());
+        assertEquals(BulkSubmissionResult.Status.DUPLICATE, results.get(1).getStatus());
+        assertEquals(BulkSubmissionResult.Status.CREATED, results.get(2).getStatus());
+        assertEquals(BulkSubmissionResult.Status.DUPLICATE, results.get(3).getStatus());
+        assertEquals(BulkSubmissionResult.Status.OFFER_NOT_FOUND, results.get(4).getStatus());
+        assertEquals(BulkSubmissionResult.Status.INVALID, results.get(5).getStatus());
+        assertEquals("Candidate email is invalid", results.get(5).getErrors().get(0));
+        assertEquals(BulkSubmissionResult.Status.CREATED, results.get(6).getStatus());
+        testEntityManager.clear();
+
+        Application application = testEntityManager.find(Application.class, results.get(2).getApplicationId());
+        assertEquals("submitted@email.com", application.getEmail());
+        assertEquals(offer2.getId(), application.getOffer().getId());
+        assertEquals(ApplicationStatus.APPLIED, application.getApplicationStatus());
+        assertEquals(1, application.getApplicationStatusHistories().size());
+
+        assertEquals(new OfferFunnel(1, 1, 0, 0, 0), offerRepository.findFunnelById(offer1.getId()).get());
+        assertEquals(new OfferFunnel(2, 2, 0, 0, 0), offerRepository.findFunnelById(offer2.getId()).get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSubmitWithNoItems(){
+        applicationBulkService.submit(new ArrayList<>());
+    }
+
+    private long submitAndCountStatements(String prefix, int size){
+        List<ApplicationPartial> applicationPartials = new ArrayList<>();
+        for (int i = 0; i < size; i++){
+            applicationPartials.add(new ApplicationPartial(prefix + i + "@email.com", i % 2 == 0 ? offer1.getId() : offer2.getId()));
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<BulkSubmissionResult> results = applicationBulkService.submit(applicationPartials);
+        assertTrue(results.stream().allMatch(r -> r.getStatus() == BulkSubmissionResult.Status.CREATED));
+        assertEquals(2L * size, statistics.getEntityInsertCount());
+
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    public void testInsertsAreBatched(){
+        long statements5 = submitAndCountStatements("batch-a", 5);
+        long statements10 = submitAndCountStatements("batch-b", 10);
+
+        //  inserts of applications and their histories are batched and ids are allocated in blocks,
+        //  so the only extra statements are at most one sequence call per sequence when a block is used up
+        assertTrue(statements10 - statements5 <= 2);
+    }
+
+    private List<Long> submit(String prefix, int size){
+        List<ApplicationPartial> applicationPartials = new ArrayList<>();
+        for (int i = 0; i < size; i++){
+            applicationPartials.add(new ApplicationPartial(prefix + i + "@email.com", i % 2 == 0 ? offer1.getId() : offer2.getId()));
+        }
+
+        List<Long> ids = applicationBulkService.submit(applicationPartials)
+                .stream()
+                .map(BulkSubmissionResult::getApplicationId)
+                .collect(Collectors.toList());
+        testEntityManager.clear();
+
+        return ids;
+    }
+
+    private long countHistories(ApplicationStatus applicationStatus){
+        return testEntityManager.getEntityManager()
+                .createQuery("select count(h) from ApplicationStatusHistory h where h.applicationStatus = :status", Long.class)
+                .setParameter("status", applicationStatus)
+                .getSingleResult();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTransitionWithResults(){
+        List<Long> ids = submit("transition", 3);
+
+        List<BulkTransitionResult> results = applicationBulkService.transition(
+                ApplicationStatus.INVITED,
+                Arrays.asList(ids.get(0), 100500L, ids.get(1), ids.get(0), ids.get(2)));
+        testEntityManager.clear();
+
+        assertEquals(5, results.size());
+        assertEquals(BulkTransitionResult.updated(ids.get(0)), results.get(0));
+        assertEquals(BulkTransitionResult.notFound(100500), results.get(1));
+        assertEquals(BulkTransitionResult.updated(ids.get(1)), results.get(2));
+        assertEquals(BulkTransitionResult.Status.INVALID_TRANSITION, results.get(3).getStatus());
+        assertEquals("status is already set to 'INVITED'", results.get(3).getError());
+        assertEquals(BulkTransitionResult.updated(ids.get(2)), results.get(4));
+
+        for (long id: ids){
+            Application application = testEntityManager.find(Application.class, id);
+            assertEquals(ApplicationStatus.INVITED, application.getApplicationStatus());
+            assertEquals(2, application.getApplicationStatusHistories().size());
+        }
+        assertEquals(3, countHistories(ApplicationStatus.INVITED));
+
+        //  offer1 has ids 0 and 2, offer2 has id 1
+        assertEquals(new OfferFunnel(2, 0, 2, 0, 0), offerRepository.findFunnelById(offer1.getId()).get());
+        assertEquals(new OfferFunnel(1, 0, 1, 0, 0), offerRepository.findFunnelById(offer2.getId()).get());
+
+        ArgumentCaptor<Collection<Application>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(notificationService).sendNotifications(captor.capture());
+        assertThat(
+                captor.getValue().stream().map(Application::getId).collect(Collectors.toList()),
+                containsInAnyOrder(ids.toArray()));
+    }
+
+    @Test
+    public void testTransitionWithInvalidFlow(){
+        List<Long> ids = submit("flow", 1);
+
+        List<BulkTransitionResult> results = applicationBulkService.transition(ApplicationStatus.HIRED, ids);
+
+        assertEquals(BulkTransitionResult.Status.INVALID_TRANSITION, results.get(0).getStatus());
+        assertEquals("Application status is incorrect", results.get(0).getError());
+        assertEquals(0, countHistories(ApplicationStatus.HIRED));
+    }
+
+    private long transitionAndCountStatements(String prefix, int size){
+        List<Long> ids = submit(prefix, size);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        applicationBulkService.transition(ApplicationStatus.REJECTED, ids);
+        assertEquals(size, statistics.getEntityInsertCount());
+        assertEquals(size, statistics.getEntityUpdateCount());
+
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    public void testTransitionStatementsAreBatched(){
+        long statements5 = transitionAndCountStatements("transition-a", 5);
+        long statements10 = transitionAndCountStatements("transition-b", 10);
+
+        //  applications are loaded at once, updates and histories' inserts are batched,
+        //  the only extra statement is at most one histories' sequence call when a block of ids is used up
+        assertTrue(statements10 - statements5 <= 1);
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.caching;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.heavenhr.rproc.rproc.entities.Offer;
+import com.heavenhr.rproc.rproc.repositories.OfferRepository;
+import com.heavenhr.rproc.rproc.storage.StorageService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.cache.CacheType;
+import org.springframework.boot.test.autoconfigure.core.AutoConfigureCache;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureCache(cacheProvider = CacheType.CAFFEINE)
+@Import(CacheConfig.class)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class OfferCacheTest {
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockBean
+    private StorageService storageService;
+
+    private Offer offer;
+
+    private Statistics statistics;
+
+    @SuppressWarnings("unchecked")
+    private Cache<Object, Object> nativeCache(){
+        return (Cache<Object, Object>) cacheManager.getCache(CacheConfig.OFFERS).getNativeCache();
+    }
+
+    @Before
+    public void createEntities(){
+        cacheManager.getCache(CacheConfig.OFFERS).clear();
+
+        offer = new Offer();
+        offer.setJobTitle("cached job title");
+        offer = testEntityManager.persistAndFlush(offer);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void findCachedById_queriesOnlyOnce(){
+        CacheStats before = nativeCache().stats();
+
+        assertEquals(offer.getId(), offerRepository.findCachedById(offer.getId()).get().getId());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        assertEquals(offer.getId(), offerRepository.findCachedById(offer.getId()).get().getId());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        CacheStats stats = nativeCache().stats().minus(before);
+        assertEquals(1, stats.hitCount());
+        assertEquals(1, stats.missCount());
+    }
+
+    @Test
+    public void findCachedById_missingOfferIsNotCached(){
+        long offerId = offer.getId() + 1;
+
+        assertFalse(offerRepository.findCachedById(offerId).isPresent());
+        assertFalse(offerRepository.findCachedById(offerId).isPresent());
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertTrue(nativeCache().asMap().isEmpty());
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.caching;
+
+import com.heavenhr.rproc.rproc.entities.Offer;
+import com.heavenhr.rproc.rproc.entities.OfferFunnel;
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import com.heavenhr.rproc.rproc.repositories.OfferRepository;
+import com.heavenhr.rproc.rproc.storage.StorageService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+/**
+ * second-level cache is populated by committed transactions only, so every repository call commits its own
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class SecondLevelCacheTest {
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @MockBean
+    private StorageService storageService;
+
+    private Offer offer1, offer2;
+
+    private Statistics statistics;
+
+    private Offer createOffer(String jobTitle){
+        Offer offer = new Offer();
+        offer.setJobTitle(jobTitle);
+
+        return offerRepository.save(offer);
+    }
+
+    private List<Long> ids(List<Offer> offers){
+        return offers.stream().map(Offer::getId).collect(Collectors.toList());
+    }
+
+    @Before
+    public void createEntities(){
+        offer1 = createOffer("l2 job title1");
+        offer2 = createOffer("l2 job title2");
+
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @After
+    public void deleteEntities(){
+        offerRepository.deleteAll();
+    }
+
+    @Test
+    public void findById_readsOfferOnce(){
+        assertEquals(offer1.getJobTitle(), offerRepository.findById(offer1.getId()).get().getJobTitle());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        //  the funnel is not loaded with the offer, so a cache hit issues no statement
+        assertEquals(offer1.getJobTitle(), offerRepository.findById(offer1.getId()).get().getJobTitle());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    public void findAllByIdGreaterThan_readsOffersOnce(){
+        long lastId = offer1.getId() - 1;
+
+        assertThat(ids(offerRepository.findAllByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, 10))),
+                contains(offer1.getId(), offer2.getId()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        assertThat(ids(offerRepository.findAllByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, 10))),
+                contains(offer1.getId(), offer2.getId()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    public void findAllByIdGreaterThan_newOfferInvalidatesQuery(){
+        long lastId = offer1.getId() - 1;
+        offerRepository.findAllByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, 10));
+
+        Offer offer3 = createOffer("l2 job title3");
+
+        assertThat(ids(offerRepository.findAllByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, 10))),
+                contains(offer1.getId(), offer2.getId(), offer3.getId()));
+        assertEquals(0, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    public void updateFunnel_keepsOfferCached(){
+        offerRepository.findById(offer1.getId());
+
+        offerRepository.updateFunnel(offer1.getId(), OfferFunnel.ofTransition(null, ApplicationStatus.APPLIED));
+
+        //  the offer is read from the cache, its funnel is read from the database
+        Offer offer = offerRepository.findById(offer1.getId()).get();
+        assertEquals(1, statistics.getSecondLevelCacheHitCount());
+        assertEquals(offer1.getVersion(), offer.getVersion());
+        assertEquals(1, offerRepository.findFunnelById(offer1.getId()).get().getTotal());
+    }
+
+    @Test
+    public void updateFunnel_keepsQueryCached(){
+        long lastId = offer1.getId() - 1;
+        offerRepository.findAllByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, 10));
+
+        offerRepository.updateFunnel(offer1.getId(), OfferFunnel.ofTransition(null, ApplicationStatus.APPLIED));
+
+        List<Offer> offers = offerRepository.findAllByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, 10));
+        assertEquals(1, statistics.getQueryCacheHitCount());
+        assertEquals(1, offerRepository.findFunnelsByOfferIdIn(ids(offers)).get(0).getTotal());
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.controllers;
+
+import com.heavenhr.rproc.rproc.entities.Application;
+import com.heavenhr.rproc.rproc.entities.Offer;
+import com.heavenhr.rproc.rproc.entities.OfferFunnel;
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import com.heavenhr.rproc.rproc.messaging.ApplicationStatusNotificationService;
+import com.heavenhr.rproc.rproc.repositories.ApplicationRepository;
+import com.heavenhr.rproc.rproc.repositories.OfferRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Many threads patch the same application at once, every patch runs in its own transaction
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rproc-concurrency;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false"})
+public class ApplicationControllerConcurrencyTest {
+    private static final int THREADS = 16;
+
+    @Autowired
+    private ApplicationController applicationController;
+
+    @Autowired
+    private ApplicationRepository applicationRepository;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @MockBean
+    private ApplicationStatusNotificationService notificationService;
+
+    private Application application;
+
+    @Before
+    public void createEntities(){
+        Offer offer = new Offer();
+        offer.setJobTitle("concurrency " + UUID.randomUUID().toString().substring(0, 8));
+        offer = offerRepository.save(offer);
+
+        application = new Application();
+        application.setEmail("concurrency@email.com");
+        application.setOffer(offer);
+        application = applicationRepository.save(application);
+        offerRepository.updateFunnel(offer.getId(), OfferFunnel.ofTransition(null, ApplicationStatus.APPLIED));
+    }
+
+    /**
+     * @return exceptions thrown by patches, null for successful ones
+     */
+    private List<Throwable> patchConcurrently(ApplicationStatus... statuses) throws InterruptedException{
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++){
+            ApplicationStatus applicationStatus = statuses[i % statuses.length];
+            futures.add(executorService.submit(() -> {
+                start.await();
+                Map<String, String> patch = new HashMap<>();
+                patch.put("applicationStatus", applicationStatus.toString());
+
+                return applicationController.patchApplication(application.getId(), patch);
+            }));
+        }
+        start.countDown();
+
+        List<Throwable> results = new ArrayList<>();
+        for (Future<?> future: futures){
+            try{
+                future.get(30, TimeUnit.SECONDS);
+                results.add(null);
+            }catch (ExecutionException e){
+                results.add(e.getCause());
+            }catch (TimeoutException e){
+                throw new IllegalStateException(e);
+            }
+        }
+        executorService.shutdown();
+
+        return results;
+    }
+
+    private long countHistories(){
+        return entityManager
+                .createQuery("select count(h) from ApplicationStatusHistory h where h.application.id = :id", Long.class)
+                .setParameter("id", application.getId())
+                .getSingleResult();
+    }
+
+    @Test
+    public void testConcurrentPatchesWithTheSameStatus() throws InterruptedException{
+        List<Throwable> results = patchConcurrently(ApplicationStatus.INVITED);
+
+        long succeeded = results.stream().filter(Objects::isNull).count();
+        assertEquals(1, succeeded);
+        //  others see the change after retry
+        results.stream().filter(Objects::nonNull).forEach(e -> {
+            assertEquals(e.toString(), IllegalArgumentException.class, e.getClass());
+            assertEquals("status is already set to 'INVITED'", e.getMessage());
+        });
+
+        Application applicationTest = applicationRepository.findById(application.getId()).get();
+        assertEquals(ApplicationStatus.INVITED, applicationTest.getApplicationStatus());
+        assertEquals(1, applicationTest.getVersion());
+        //  APPLIED and INVITED only
+        assertEquals(2, countHistories());
+        assertEquals(
+                new OfferFunnel(1, 0, 1, 0, 0),
+                offerRepository.findFunnelById(application.getOffer().getId()).get());
+        verify(notificationService, times(1)).sendNotification(any(Application.class));
+    }
+
+    @Test
+    public void testConcurrentPatchesWithDifferentStatuses() throws InterruptedException{
+        List<Throwable> results = patchConcurrently(
+                ApplicationStatus.INVITED,
+                ApplicationStatus.REJECTED,
+                ApplicationStatus.HIRED);
+
+        long succeeded = results.stream().filter(Objects::isNull).count();
+        results.stream().filter(Objects::nonNull).forEach(e -> assertEquals(e.toString(), IllegalArgumentException.class, e.getClass()));
+
+        //  no update is lost: every successful patch has its history and version increment
+        Application applicationTest = applicationRepository.findById(application.getId()).get();
+        assertEquals(succeeded, applicationTest.getVersion());
+        assertEquals(1 + succeeded, countHistories());
+
+        OfferFunnel offerFunnel = offerRepository.findFunnelById(application.getOffer().getId()).get();
+        assertEquals(1, offerFunnel.getTotal());
+        assertEquals(1, offerFunnel.getCount(applicationTest.getApplicationStatus()));
+        verify(notificationService, times((int) succeeded)).sendNotification(any(Application.class));
+    }
+}
@@ -4,13 +4,26 @@
 package com.heavenhr.rproc.rproc.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.heavenhr.rproc.rproc.bulk.ApplicationBulkService;
+import com.heavenhr.rproc.rproc.bulk.BulkSubmissionResult;
+import com.heavenhr.rproc.rproc.bulk.BulkTransitionRequest;
+import com.heavenhr.rproc.rproc.bulk.BulkTransitionResult;
+import com.heavenhr.rproc.rproc.duplicates.SubmittedEmailIndex;
 import com.heavenhr.rproc.rproc.entities.Application;
 import com.heavenhr.rproc.rproc.entities.ApplicationPartial;
+import com.heavenhr.rproc.rproc.entities.ApplicationStatusHistoryItem;
+import com.heavenhr.rproc.rproc.entities.ApplicationSummary;
 import com.heavenhr.rproc.rproc.entities.Offer;
+import com.heavenhr.rproc.rproc.entities.OfferFunnel;
+import com.heavenhr.rproc.rproc.entities.VersionedId;
 import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
-import com.heavenhr.rproc.rproc.messaging.RabbitNotificationService;
+import com.heavenhr.rproc.rproc.export.ApplicationExportService;
+import com.heavenhr.rproc.rproc.messaging.ApplicationStatusNotificationService;
+import com.heavenhr.rproc.rproc.pagination.KeysetCursor;
+import com.heavenhr.rproc.rproc.pagination.TimeKeysetCursor;
 import com.heavenhr.rproc.rproc.recourseassemblers.ApplicationResourceAssembler;
 import com.heavenhr.rproc.rproc.repositories.ApplicationRepository;
+import com.heavenhr.rproc.rproc.repositories.ApplicationStatusHistoryRepository;
 import com.heavenhr.rproc.rproc.repositories.OfferRepository;
 import com.heavenhr.rproc.rproc.storage.StorageService;
 import org.junit.BeforeClass;
@@ -20,23 +33,44 @@ import org.mockito.ArgumentMatchers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.Resource;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -52,20 +86,45 @@ public class ApplicationControllerTest {
     @MockBean
     private ApplicationRepository applicationRepository;
 
+    @MockBean
+    private ApplicationStatusHistoryRepository applicationStatusHistoryRepository;
+
     @MockBean
     private ApplicationResourceAssembler applicationResourceAssembler;
 
     @MockBean
-    private RabbitNotificationService rabbitNotificationService;
+    private ApplicationStatusNotificationService notificationService;
 
     @MockBean
     private StorageService storageService;
 
+    @MockBean
+    private ApplicationExportService applicationExportService;
+
+    @MockBean
+    private ApplicationBulkService applicationBulkService;
+
+    @MockBean
+    private SubmittedEmailIndex submittedEmailIndex;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
     @Autowired
     private ObjectMapper objectMapper;
 
     private static Offer offer;
     private static List<Application> applications = new ArrayList<>();
+    private static List<ApplicationSummary> summaries = new ArrayList<>();
+
+    private static ApplicationSummary summaryOf(Application application){
+        return new ApplicationSummary(
+                application.getId(),
+                application.getEmail(),
+                application.getUploadHash(),
+                application.getApplicationStatus(),
+                application.getOffer().getId());
+    }
 
     @BeforeClass
     public static void beforeClass(){
@@ -110,6 +169,8 @@ public class ApplicationControllerTest {
         application.setApplicationStatus(ApplicationStatus.APPLIED);
 
         applications.add(application);
+
+        applications.forEach(a -> summaries.add(summaryOf(a)));
     }
 
     @Test
@@ -136,8 +197,10 @@ public class ApplicationControllerTest {
     @WithMockUser(username = "hr")
     @Test
     public void allApplications_withApplications() throws Exception{
-        when(applicationRepository.findAll()).thenReturn(applications);
-        applications.forEach(a ->
+        when(applicationRepository.findSummariesByIdGreaterThan(
+                ArgumentMatchers.eq(0L),
+                ArgumentMatchers.any(Pageable.class))).thenReturn(summaries);
+        summaries.forEach(a ->
                 when(applicationResourceAssembler.toResource(a)).thenReturn(new Resource<>(a)));
 
         mockMvc.perform(
@@ -145,7 +208,69 @@ public class ApplicationControllerTest {
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$._embedded.applications", hasSize(applications.size())))
-                .andExpect(jsonPath("$._links").exists());
+                .andExpect(jsonPath("$._links").exists())
+                .andExpect(jsonPath("$._links.next").doesNotExist());
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void allApplications_withMoreApplicationsThanPageSize() throws Exception{
+        //  page size + 1 rows are requested from the repository
+        when(applicationRepository.findSummariesByIdGreaterThan(
+                ArgumentMatchers.eq(0L),
+                ArgumentMatchers.eq(PageRequest.of(0, 3)))).thenReturn(summaries);
+        summaries.forEach(a ->
+                when(applicationResourceAssembler.toResource(a)).thenReturn(new Resource<>(a)));
+
+        mockMvc.perform(
+                get("/applications?size=2")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.applications", hasSize(2)))
+                .andExpect(jsonPath("$._links.next.href",
+                        containsString("cursor=" + KeysetCursor.encode(applications.get(1).getId()))))
+                .andExpect(jsonPath("$._links.next.href", containsString("size=2")))
+                .andExpect(jsonPath("$._links.self.href", endsWith("/applications?size=2")));
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void allApplications_withCursor() throws Exception{
+        Application application = applications.get(0);
+        when(applicationRepository.findSummariesByIdGreaterThan(
+                ArgumentMatchers.eq(application.getId()),
+                ArgumentMatchers.any(Pageable.class))).thenReturn(summaries.subList(1, 3));
+        summaries.forEach(a ->
+                when(applicationResourceAssembler.toResource(a)).thenReturn(new Resource<>(a)));
+
+        mockMvc.perform(
+                get("/applications?cursor=" + KeysetCursor.encode(application.getId()))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.applications", hasSize(2)))
+                .andExpect(jsonPath("$._links.self.href",
+                        endsWith("/applications?cursor=" + KeysetCursor.encode(application.getId()))))
+                .andExpect(jsonPath("$._links.next").doesNotExist());
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void allApplications_withInvalidCursor() throws Exception{
+        mockMvc.perform(
+                get("/applications?cursor=invalid")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().is5xxServerError())
+                .andExpect(jsonPath("$.errorMessage", containsString("provided cursor is invalid")));
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void allApplications_withInvalidPageSize() throws Exception{
+        mockMvc.perform(
+                get("/applications?size=0")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().is5xxServerError())
+                .andExpect(jsonPath("$.errorMessage", containsString("page size is invalid")));
     }
 
     @Test
@@ -178,12 +303,185 @@ public class ApplicationControllerTest {
                 .andExpect(jsonPath("$.errorMessage").exists());
     }
 
+    @WithMockUser(username = "hr")
+    @Test
+    public void allApplications_withValidOfferIdAndApplicationStatus() throws Exception{
+        when(offerRepository.findCachedById(offer.getId())).thenReturn(Optional.of(offer));
+        List<ApplicationSummary> invitedSummaries = Collections.singletonList(summaryOf(offer.getApplications().get(0)));
+        when(applicationRepository.findSummariesByOfferAndApplicationStatusAndIdGreaterThan(
+                ArgumentMatchers.eq(offer),
+                ArgumentMatchers.eq(ApplicationStatus.INVITED),
+                ArgumentMatchers.eq(0L),
+                ArgumentMatchers.any(Pageable.class))).thenReturn(invitedSummaries);
+        invitedSummaries.forEach(a ->
+                when(applicationResourceAssembler.toResource(a)).thenReturn(new Resource<>(a)));
+
+        mockMvc.perform(
+                get("/applications?offerId=" + offer.getId() + "&applicationStatus=invited")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.applications", hasSize(1)));
+
+        verify(applicationRepository).findVersionsByOfferAndApplicationStatusAndIdGreaterThan(
+                ArgumentMatchers.eq(offer),
+                ArgumentMatchers.eq(ApplicationStatus.INVITED),
+                ArgumentMatchers.eq(0L),
+                ArgumentMatchers.any(Pageable.class));
+        verify(applicationRepository, never()).findSummariesByOfferAndIdGreaterThan(
+                any(Offer.class), anyLong(), any(Pageable.class));
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void allApplications_withApplicationStatus() throws Exception{
+        List<ApplicationSummary> appliedSummaries = Collections.singletonList(summaryOf(applications.get(0)));
+        when(applicationRepository.findSummariesByApplicationStatusAndIdGreaterThan(
+                ArgumentMatchers.eq(ApplicationStatus.APPLIED),
+                ArgumentMatchers.eq(0L),
+                ArgumentMatchers.any(Pageable.class))).thenReturn(appliedSummaries);
+        appliedSummaries.forEach(a ->
+                when(applicationResourceAssembler.toResource(a)).thenReturn(new Resource<>(a)));
+
+        mockMvc.perform(
+                get("/applications?applicationStatus=applied")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.applications", hasSize(1)));
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void allApplications_withInvalidApplicationStatus() throws Exception{
+        mockMvc.perform(
+                get("/applications?applicationStatus=unknown")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().is5xxServerError());
+
+        verify(applicationRepository, never()).findSummariesByIdGreaterThan(anyLong(), any(Pageable.class));
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void getApplicationHistory_withHistory() throws Exception{
+        LocalDateTime appliedAt = LocalDateTime.of(2019, 1, 20, 10, 0);
+        List<ApplicationStatusHistoryItem> history = Arrays.asList(
+                new ApplicationStatusHistoryItem(1, appliedAt, ApplicationStatus.APPLIED, 1),
+                new ApplicationStatusHistoryItem(4, appliedAt.plusDays(1), ApplicationStatus.INVITED, 1),
+                new ApplicationStatusHistoryItem(5, appliedAt.plusDays(2), ApplicationStatus.HIRED, 1));
+        //  page size + 1 rows are requested from the repository
+        when(applicationStatusHistoryRepository.findItemsByApplicationIdAfter(
+                1L,
+                TimeKeysetCursor.BEGINNING,
+                0L,
+                PageRequest.of(0, 3))).thenReturn(history);
+        history.forEach(h ->
+                when(applicationResourceAssembler.toResource(h)).thenReturn(new Resource<>(h)));
+
+        mockMvc.perform(
+                get("/applications/1/history?size=2")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.history", hasSize(2)))
+                .andExpect(jsonPath("$._embedded.history[1].applicationStatus", is("INVITED")))
+                .andExpect(jsonPath("$._links.self.href", endsWith("/applications/1/history?size=2")))
+                .andExpect(jsonPath("$._links.next.href",
+                        containsString("cursor=" + TimeKeysetCursor.encode(appliedAt.plusDays(1), 4))));
+
+        verify(applicationRepository, never()).existsById(anyLong());
+        verify(applicationRepository, never()).findById(anyLong());
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void getApplicationHistory_withCursor() throws Exception{
+        LocalDateTime invitedAt = LocalDateTime.of(2019, 1, 21, 10, 0);
+        ApplicationStatusHistoryItem hired = new ApplicationStatusHistoryItem(
+                5, invitedAt.plusDays(1), ApplicationStatus.HIRED, 1);
+        when(applicationStatusHistoryRepository.findItemsByApplicationIdAfter(
+                ArgumentMatchers.eq(1L),
+                ArgumentMatchers.eq(invitedAt),
+                ArgumentMatchers.eq(4L),
+                ArgumentMatchers.any(Pageable.class))).thenReturn(Collections.singletonList(hired));
+        when(applicationResourceAssembler.toResource(hired)).thenReturn(new Resource<>(hired));
+
+        mockMvc.perform(
+                get("/applications/1/history?cursor=" + TimeKeysetCursor.encode(invitedAt, 4))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.history", hasSize(1)))
+                .andExpect(jsonPath("$._links.next").doesNotExist());
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void getApplicationHistory_withInvalidAppId() throws Exception{
+        when(applicationRepository.existsById(100500L)).thenReturn(false);
+
+        mockMvc.perform(
+                get("/applications/100500/history")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void getApplicationHistory_withInvalidCursor() throws Exception{
+        mockMvc.perform(
+                get("/applications/1/history?cursor=" + KeysetCursor.encode(1))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().is5xxServerError());
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void getHistory_withPeriod() throws Exception{
+        ApplicationStatusHistoryItem invited = new ApplicationStatusHistoryItem(
+                4, LocalDateTime.of(2019, 1, 21, 10, 0), ApplicationStatus.INVITED, 1);
+        //  the period's dates are inclusive
+        when(applicationStatusHistoryRepository.findItemsAfter(
+                ArgumentMatchers.eq(LocalDateTime.of(2019, 1, 21, 0, 0)),
+                ArgumentMatchers.eq(0L),
+                ArgumentMatchers.eq(LocalDateTime.of(2019, 1, 23, 0, 0)),
+                ArgumentMatchers.any(Pageable.class))).thenReturn(Collections.singletonList(invited));
+        when(applicationResourceAssembler.toResource(invited)).thenReturn(new Resource<>(invited));
+
+        mockMvc.perform(
+                get("/applications/history?from=2019-01-21&to=2019-01-22")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.history", hasSize(1)))
+                .andExpect(jsonPath("$._embedded.history[0].applicationId", is(1)))
+                .andExpect(jsonPath("$._links.self.href", endsWith("/applications/history?from=2019-01-21&to=2019-01-22")));
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void getHistory_withoutPeriod() throws Exception{
+        mockMvc.perform(
+                get("/applications/history?from=2019-01-21")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().is5xxServerError());
+
+        verify(applicationStatusHistoryRepository, never()).findItemsAfter(
+                any(LocalDateTime.class),
+                anyLong(),
+                any(LocalDateTime.class),
+                any(Pageable.class));
+    }
+
     @WithMockUser(username = "hr")
     @Test
     public void allApplications_withValidOfferIdAndApplications() throws Exception{
-        when(offerRepository.findById(offer.getId())).thenReturn(Optional.of(offer));
-        when(applicationRepository.findAllByOffer(offer)).thenReturn(offer.getApplications());
-        offer.getApplications().forEach(a ->
+        when(offerRepository.findCachedById(offer.getId())).thenReturn(Optional.of(offer));
+        List<ApplicationSummary> offerSummaries = offer.getApplications()
+                .stream()
+                .map(ApplicationControllerTest::summaryOf)
+                .collect(Collectors.toList());
+        when(applicationRepository.findSummariesByOfferAndIdGreaterThan(
+                ArgumentMatchers.eq(offer),
+                ArgumentMatchers.eq(0L),
+                ArgumentMatchers.any(Pageable.class))).thenReturn(offerSummaries);
+        offerSummaries.forEach(a ->
                 when(applicationResourceAssembler.toResource(a)).thenReturn(new Resource<>(a)));
 
         mockMvc.perform(
@@ -194,11 +492,43 @@ public class ApplicationControllerTest {
                 .andExpect(jsonPath("$._links").exists());
     }
 
+    @WithMockUser(username = "hr")
+    @Test
+    public void allApplications_withValidOfferIdAndMatchingETag() throws Exception{
+        when(offerRepository.findCachedById(offer.getId())).thenReturn(Optional.of(offer));
+        when(applicationRepository.findVersionsByOfferAndIdGreaterThan(
+                ArgumentMatchers.eq(offer),
+                ArgumentMatchers.eq(0L),
+                ArgumentMatchers.any(Pageable.class))).thenReturn(Arrays.asList(new VersionedId(1, 1)));
+
+        String eTag = mockMvc.perform(
+                get("/applications?offerId=" + offer.getId())
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(
+                get("/applications?offerId=" + offer.getId())
+                        .header("If-None-Match", eTag)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified());
+
+        //  summaries are loaded only for the first request
+        verify(applicationRepository, times(1)).findSummariesByOfferAndIdGreaterThan(
+                ArgumentMatchers.eq(offer),
+                ArgumentMatchers.eq(0L),
+                ArgumentMatchers.any(Pageable.class));
+    }
+
     @WithMockUser(username = "hr")
     @Test
     public void allApplications_withValidOfferIdAndNoApplications() throws Exception{
-        when(offerRepository.findById(offer.getId())).thenReturn(Optional.of(offer));
-        when(applicationRepository.findAllByOffer(offer)).thenReturn(new ArrayList<>());
+        when(offerRepository.findCachedById(offer.getId())).thenReturn(Optional.of(offer));
+        when(applicationRepository.findSummariesByOfferAndIdGreaterThan(
+                ArgumentMatchers.eq(offer),
+                ArgumentMatchers.eq(0L),
+                ArgumentMatchers.any(Pageable.class))).thenReturn(new ArrayList<>());
 
         mockMvc.perform(
                 get("/applications?offerId=" + offer.getId())
@@ -221,7 +551,7 @@ public class ApplicationControllerTest {
     @WithMockUser(username = "hr")
     @Test
     public void getNumberOfApplicationsTotal_withApplications() throws Exception{
-        when(applicationRepository.findAll()).thenReturn(applications);
+        when(applicationRepository.count()).thenReturn((long)applications.size());
 
         assertEquals(3, applications.size());
 
@@ -255,8 +585,8 @@ public class ApplicationControllerTest {
     @WithMockUser(username = "hr")
     @Test
     public void getNumberOfApplicationsTotal_withValidOfferId() throws Exception{
-        when(offerRepository.findById(offer.getId())).thenReturn(Optional.of(offer));
-        when(applicationRepository.findAllByOffer(offer)).thenReturn(offer.getApplications());
+        when(offerRepository.findCachedById(offer.getId())).thenReturn(Optional.of(offer));
+        when(applicationRepository.countByOffer(offer)).thenReturn((long)offer.getApplications().size());
 
         mockMvc.perform(
                 get("/applications/total?offerId=" + offer.getId())
@@ -265,13 +595,48 @@ public class ApplicationControllerTest {
                 .andExpect(jsonPath("$.total", is(offer.getApplications().size())));
     }
 
+    @WithMockUser(username = "hr")
+    @Test
+    public void getNumberOfApplicationsTotal_withApplicationStatus() throws Exception{
+        when(applicationRepository.countByApplicationStatus(ApplicationStatus.INVITED)).thenReturn(7L);
+
+        mockMvc.perform(
+                get("/applications/total?applicationStatus=invited")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total", is(7)));
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void getNumberOfApplicationsTotal_withValidOfferIdAndApplicationStatus() throws Exception{
+        when(offerRepository.findCachedById(offer.getId())).thenReturn(Optional.of(offer));
+        when(applicationRepository.countByOfferAndApplicationStatus(offer, ApplicationStatus.APPLIED)).thenReturn(2L);
+
+        mockMvc.perform(
+                get("/applications/total?offerId=" + offer.getId() + "&applicationStatus=APPLIED")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total", is(2)));
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void getNumberOfApplicationsTotal_withInvalidApplicationStatus() throws Exception{
+        mockMvc.perform(
+                get("/applications/total?applicationStatus=unknown")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().is5xxServerError())
+                .andExpect(jsonPath("$.errorMessage").exists());
+    }
+
     @WithMockUser(username = "hr")
     @Test
     public void getNumberOfApplicationsTotal_withValidOfferIdAndZeroApplications() throws Exception{
         Offer offer0 = new Offer();
         offer0.setId(1);
-        when(offerRepository.findById(offer0.getId())).thenReturn(Optional.of(offer0));
-        when(applicationRepository.findAllByOffer(offer0)).thenReturn(offer0.getApplications());
+        when(offerRepository.findCachedById(offer0.getId())).thenReturn(Optional.of(offer0));
+        when(applicationRepository.countByOffer(offer0)).thenReturn((long)offer0.getApplications().size());
 
         mockMvc.perform(
                 get("/applications/total?offerId=" +  offer0.getId())
@@ -280,6 +645,57 @@ public class ApplicationControllerTest {
                 .andExpect(jsonPath("$.total", is(offer0.getApplications().size())));
     }
 
+    @Test
+    public void exportApplications_withUnauthorizedUser() throws Exception{
+        mockMvc.perform(
+                get("/applications/export"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(header().string("Location", containsString("/login")));
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void exportApplications_withFilters() throws Exception{
+        String lines = "{\"id\":1}\n{\"id\":2}\n";
+        when(offerRepository.findCachedById(offer.getId())).thenReturn(Optional.of(offer));
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(4).write(lines.getBytes(StandardCharsets.UTF_8));
+            return 2L;
+        }).when(applicationExportService).export(
+                eq(offer),
+                eq(ApplicationStatus.INVITED),
+                eq(LocalDate.of(2019, 1, 1).atStartOfDay()),
+                eq(LocalDate.of(2019, 2, 1).atStartOfDay()),
+                any(OutputStream.class));
+
+        MvcResult mvcResult = mockMvc.perform(
+                get("/applications/export?offerId=" + offer.getId() +
+                        "&applicationStatus=invited&from=2019-01-01&to=2019-01-31"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(ApplicationExportService.NDJSON))
+                .andExpect(content().string(lines));
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void exportApplications_withNoFilters() throws Exception{
+        MvcResult mvcResult = mockMvc.perform(
+                get("/applications/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+
+        verify(applicationExportService).export(
+                isNull(), isNull(), isNull(), isNull(), any(OutputStream.class));
+    }
+
     @WithMockUser(username = "hr")
     @Test
     public void getApplication_withInvalidIntAppId() throws Exception{
@@ -290,6 +706,24 @@ public class ApplicationControllerTest {
                 .andExpect(jsonPath("$.errorMessage", containsString("Error: application with #")));
     }
 
+    @WithMockUser(username = "hr")
+    @Test
+    public void getApplication_withMatchingETag() throws Exception{
+        Application application = applications.get(0);
+
+        when(applicationRepository.findVersionById(application.getId())).thenReturn(Optional.of(2L));
+
+        mockMvc.perform(
+                get("/applications/" + application.getId())
+                        .header("If-None-Match", "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", is("\"2\"")))
+                .andExpect(content().string(""));
+
+        verify(applicationRepository, never()).findById(application.getId());
+    }
+
     @WithMockUser(username = "hr")
     @Test
     public void getApplication_withInvalidNotIntAppId() throws Exception{
@@ -304,6 +738,7 @@ public class ApplicationControllerTest {
     public void getApplication_withValidAppId() throws Exception{
         Application application = applications.get(0);
 
+        when(applicationRepository.findVersionById(application.getId())).thenReturn(Optional.of(2L));
         when(applicationRepository.findById(application.getId())).thenReturn(Optional.of(application));
         when(applicationResourceAssembler.toResource(application)).thenReturn(new Resource<>(application));
 
@@ -311,7 +746,9 @@ public class ApplicationControllerTest {
                 get("/applications/" + application.getId())
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.id", is(application.getId())))
+                .andExpect(header().string("ETag", is("\"2\"")))
+                .andExpect(jsonPath("$.version").doesNotExist())
+                .andExpect(jsonPath("$.id").value(is(application.getId()), Long.class))
                 .andExpect(jsonPath("$.email", is(application.getEmail())))
                 .andExpect(jsonPath("$.applicationStatus", is(application.getApplicationStatus().toString())));
 
@@ -348,7 +785,7 @@ public class ApplicationControllerTest {
     @Test
     public void submitApplication_withValidApplicationAndNoOfferExists() throws Exception{
         Application application = applications.get(0);
-        when(offerRepository.findById(application.getOffer().getId())).thenReturn(Optional.empty());
+        when(offerRepository.findCachedById(application.getOffer().getId())).thenReturn(Optional.empty());
 
         ApplicationPartial applicationInvalid = new ApplicationPartial(application);
 
@@ -367,8 +804,8 @@ public class ApplicationControllerTest {
     public void submitApplication_withValidApplicationAndOffer() throws Exception{
         String createdLink = "link_to_created_application";
         Application application = applications.get(0);
-        when(offerRepository.findById(application.getOffer().getId())).thenReturn(Optional.of(application.getOffer()));
-        when(applicationRepository.save(ArgumentMatchers.any(Application.class))).thenReturn(application);
+        when(offerRepository.findCachedById(application.getOffer().getId())).thenReturn(Optional.of(application.getOffer()));
+        when(applicationRepository.saveAndFlush(ArgumentMatchers.any(Application.class))).thenReturn(application);
 
         when(applicationResourceAssembler.toResource(application))
             .thenReturn(new Resource<>(
@@ -388,6 +825,98 @@ public class ApplicationControllerTest {
                 .andExpect(jsonPath("$.email", is(application.getEmail())))
                 .andExpect(jsonPath("$._links.self.href", is(createdLink)))
                 .andExpect(jsonPath("$._links.upload").exists());
+
+        verify(offerRepository).updateFunnel(
+                application.getOffer().getId(),
+                OfferFunnel.ofTransition(null, application.getApplicationStatus()));
+        //  the index knows the application is new
+        verify(applicationRepository, never()).existsByOfferIdAndEmail(anyLong(), anyString());
+        verify(submittedEmailIndex).put(application.getOffer().getId(), application.getEmail());
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void submitApplication_withMaybeSubmittedApplication() throws Exception{
+        Application application = applications.get(0);
+        long offerId = application.getOffer().getId();
+        when(offerRepository.findCachedById(offerId)).thenReturn(Optional.of(application.getOffer()));
+        when(submittedEmailIndex.mightContain(offerId, application.getEmail())).thenReturn(true);
+        when(applicationRepository.existsByOfferIdAndEmail(offerId, application.getEmail())).thenReturn(true);
+
+        mockMvc.perform(
+                post("/applications")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ApplicationPartial(application)))
+        )
+                .andExpect(status().isBadRequest());
+
+        verify(applicationRepository, never()).saveAndFlush(any(Application.class));
+        verify(offerRepository, never()).updateFunnel(anyLong(), any(OfferFunnel.class));
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void submitApplication_withMaybeSubmittedButNewApplication() throws Exception{
+        Application application = applications.get(0);
+        long offerId = application.getOffer().getId();
+        when(offerRepository.findCachedById(offerId)).thenReturn(Optional.of(application.getOffer()));
+        when(submittedEmailIndex.mightContain(offerId, application.getEmail())).thenReturn(true);
+        when(applicationRepository.existsByOfferIdAndEmail(offerId, application.getEmail())).thenReturn(false);
+        when(applicationRepository.saveAndFlush(any(Application.class))).thenReturn(application);
+        when(applicationResourceAssembler.toResource(application))
+                .thenReturn(new Resource<>(application, new Link("link_to_created_application")));
+
+        mockMvc.perform(
+                post("/applications")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ApplicationPartial(application)))
+        )
+                .andExpect(status().isCreated());
+
+        verify(applicationRepository).existsByOfferIdAndEmail(offerId, application.getEmail());
+    }
+
+    @Test
+    public void submitApplications_withUnauthorizedUser() throws Exception{
+        mockMvc.perform(
+                post("/applications/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]")
+        )
+                .andExpect(status().is3xxRedirection())
+                .andExpect(header().string("Location", containsString("/login")));
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void submitApplications_withResults() throws Exception{
+        List<ApplicationPartial> applicationPartials = Arrays.asList(
+                new ApplicationPartial("bulk1@email.com", offer.getId()),
+                new ApplicationPartial("bulk1@email.com", offer.getId()),
+                new ApplicationPartial("bulk2@email.com", 100500),
+                new ApplicationPartial("invalid", offer.getId()));
+        when(applicationBulkService.submit(applicationPartials)).thenReturn(Arrays.asList(
+                BulkSubmissionResult.created(0, 11),
+                BulkSubmissionResult.rejected(1, BulkSubmissionResult.Status.DUPLICATE),
+                BulkSubmissionResult.rejected(2, BulkSubmissionResult.Status.OFFER_NOT_FOUND),
+                BulkSubmissionResult.invalid(3, Collections.singletonList("Candidate email is invalid"))));
+
+        mockMvc.perform(
+                post("/applications/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(applicationPartials))
+        )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(4)))
+                .andExpect(jsonPath("$[0].status", is("CREATED")))
+                .andExpect(jsonPath("$[0].applicationId", is(11)))
+                .andExpect(jsonPath("$[0].errors").doesNotExist())
+                .andExpect(jsonPath("$[1].status", is("DUPLICATE")))
+                .andExpect(jsonPath("$[1].applicationId").doesNotExist())
+                .andExpect(jsonPath("$[2].status", is("OFFER_NOT_FOUND")))
+                .andExpect(jsonPath("$[3].index", is(3)))
+                .andExpect(jsonPath("$[3].status", is("INVALID")))
+                .andExpect(jsonPath("$[3].errors[0]", is("Candidate email is invalid")));
     }
 
     @Test
@@ -523,7 +1052,7 @@ public class ApplicationControllerTest {
     @Test
     public void patchApplication_withValidAppIdAndNullStatus() throws Exception{
         Application application = applications.get(0);
-        when(applicationRepository.findById(application.getId())).thenReturn(Optional.of(application));
+        when(applicationRepository.findWithOfferById(application.getId())).thenReturn(Optional.of(application));
 
         Map<String, String> patch = new HashMap<>();
 
@@ -539,7 +1068,7 @@ public class ApplicationControllerTest {
     @Test
     public void patchApplication_withValidAppIdAndEmptyStatus() throws Exception{
         Application application = applications.get(0);
-        when(applicationRepository.findById(application.getId())).thenReturn(Optional.of(application));
+        when(applicationRepository.findWithOfferById(application.getId())).thenReturn(Optional.of(application));
 
         Map<String, String> patch = new HashMap<>();
         patch.put("applicationStatus", "");
@@ -560,7 +1089,7 @@ public class ApplicationControllerTest {
         application.setId(1);
         assertEquals(ApplicationStatus.APPLIED, application.getApplicationStatus());
 
-        when(applicationRepository.findById(application.getId())).thenReturn(Optional.of(application));
+        when(applicationRepository.findWithOfferById(application.getId())).thenReturn(Optional.of(application));
 
         Map<String, String> patch = new HashMap<>();
         patch.put("applicationStatus", ApplicationStatus.HIRED.toString());
@@ -579,7 +1108,7 @@ public class ApplicationControllerTest {
         Application application = applications.get(0);
         assertEquals(ApplicationStatus.APPLIED, application.getApplicationStatus());
 
-        when(applicationRepository.findById(application.getId())).thenReturn(Optional.of(application));
+        when(applicationRepository.findWithOfferById(application.getId())).thenReturn(Optional.of(application));
 
         Map<String, String> patch = new HashMap<>();
         patch.put("applicationStatus", ApplicationStatus.INVITED.toString());
@@ -591,5 +1120,170 @@ public class ApplicationControllerTest {
         )
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status", is("updated")));
+
+        verify(offerRepository).updateFunnel(
+                application.getOffer().getId(),
+                OfferFunnel.ofTransition(ApplicationStatus.APPLIED, ApplicationStatus.INVITED));
+    }
+
+    /**
+     * application in its own offer, not shared with other tests
+     */
+    private static Application appliedApplication(int id){
+        Offer offer = new Offer();
+        offer.setId(id);
+        offer.setJobTitle("job title " + id);
+
+        Application application = new Application();
+        application.setId(id);
+        application.setEmail("email" + id + "@email.com");
+        application.setOffer(offer);
+        application.setApplicationStatus(ApplicationStatus.APPLIED);
+
+        return application;
+    }
+
+    @Test
+    public void patchApplication_withConcurrentModification() throws Exception{
+        Application stale = appliedApplication(101);
+        Application fresh = appliedApplication(101);
+        when(applicationRepository.findWithOfferById(101))
+                .thenReturn(Optional.of(stale))
+                .thenReturn(Optional.of(fresh));
+        doThrow(new ObjectOptimisticLockingFailureException(Application.class, 101))
+                .doNothing()
+                .when(applicationRepository).flush();
+
+        Map<String, String> patch = new HashMap<>();
+        patch.put("applicationStatus", ApplicationStatus.REJECTED.toString());
+
+        mockMvc.perform(
+                patch("/applications/101/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(patch))
+        )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("updated")));
+
+        //  the change is retried in a new transaction, the funnel is updated and notification is sent only once
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+        verify(offerRepository, times(1)).updateFunnel(
+                101,
+                OfferFunnel.ofTransition(ApplicationStatus.APPLIED, ApplicationStatus.REJECTED));
+        verify(notificationService, times(1)).sendNotification(any(Application.class));
+        verify(notificationService).sendNotification(fresh);
+    }
+
+    @Test
+    public void patchApplication_withConcurrentModificationAndNoAttemptsLeft() throws Exception{
+        when(applicationRepository.findWithOfferById(102)).thenAnswer(i -> Optional.of(appliedApplication(102)));
+        doThrow(new ObjectOptimisticLockingFailureException(Application.class, 102))
+                .when(applicationRepository).flush();
+
+        Map<String, String> patch = new HashMap<>();
+        patch.put("applicationStatus", ApplicationStatus.REJECTED.toString());
+
+        mockMvc.perform(
+                patch("/applications/102/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(patch))
+        )
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.errorMessage", containsString("application #102 is being modified concurrently")));
+
+        verify(applicationRepository, times(ApplicationController.STATUS_PATCH_ATTEMPTS)).findWithOfferById(102);
+        verify(offerRepository, never()).updateFunnel(eq(102), any(OfferFunnel.class));
+        verify(notificationService, never()).sendNotification(any(Application.class));
+    }
+
+    @Test
+    public void patchApplications_withUnauthorizedUser() throws Exception{
+        mockMvc.perform(
+                patch("/applications/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new BulkTransitionRequest("rejected", Arrays.asList(1L, 2L))))
+        )
+                .andExpect(status().is3xxRedirection())
+                .andExpect(header().string("Location", containsString("/login")));
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void patchApplications_withResults() throws Exception{
+        when(applicationBulkService.transition(ApplicationStatus.REJECTED, Arrays.asList(1L, 2L, 3L)))
+                .thenReturn(Arrays.asList(
+                        BulkTransitionResult.updated(1),
+                        BulkTransitionResult.notFound(2),
+                        BulkTransitionResult.invalid(3, "Application status is incorrect")));
+
+        mockMvc.perform(
+                patch("/applications/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new BulkTransitionRequest("rejected", Arrays.asList(1L, 2L, 3L))))
+        )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].applicationId", is(1)))
+                .andExpect(jsonPath("$[0].status", is("UPDATED")))
+                .andExpect(jsonPath("$[0].error").doesNotExist())
+                .andExpect(jsonPath("$[1].status", is("NOT_FOUND")))
+                .andExpect(jsonPath("$[2].status", is("INVALID_TRANSITION")))
+                .andExpect(jsonPath("$[2].error", is("Application status is incorrect")));
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void patchApplications_withConcurrentModification() throws Exception{
+        when(applicationBulkService.transition(ApplicationStatus.REJECTED, Arrays.asList(1L, 2L)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Application.class, 2L))
+                .thenReturn(Arrays.asList(BulkTransitionResult.updated(1), BulkTransitionResult.updated(2)));
+
+        mockMvc.perform(
+                patch("/applications/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new BulkTransitionRequest("rejected", Arrays.asList(1L, 2L))))
+        )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].status", is("UPDATED")));
+
+        //  the whole bulk is retried with fresh applications
+        verify(applicationBulkService, times(2)).transition(ApplicationStatus.REJECTED, Arrays.asList(1L, 2L));
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void patchApplications_withConcurrentModificationAndNoAttemptsLeft() throws Exception{
+        when(applicationBulkService.transition(ApplicationStatus.REJECTED, Arrays.asList(1L, 2L)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Application.class, 2L));
+
+        mockMvc.perform(
+                patch("/applications/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new BulkTransitionRequest("rejected", Arrays.asList(1L, 2L))))
+        )
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.errorMessage", containsString("applications [1, 2] are being modified concurrently")));
+
+        verify(applicationBulkService, times(ApplicationController.STATUS_PATCH_ATTEMPTS))
+                .transition(ApplicationStatus.REJECTED, Arrays.asList(1L, 2L));
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void patchApplications_withInvalidStatus() throws Exception{
+        mockMvc.perform(
+                patch("/applications/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new BulkTransitionRequest("unknown", Arrays.asList(1L, 2L))))
+        )
+                .andExpect(status().is5xxServerError())
+                .andExpect(jsonPath("$.errorMessage").exists());
     }
 }
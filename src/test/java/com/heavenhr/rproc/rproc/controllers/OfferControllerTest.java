@@ -6,8 +6,10 @@ package com.heavenhr.rproc.rproc.controllers;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.heavenhr.rproc.rproc.entities.Application;
 import com.heavenhr.rproc.rproc.entities.Offer;
+import com.heavenhr.rproc.rproc.entities.OfferFunnel;
+import com.heavenhr.rproc.rproc.entities.VersionedId;
 import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
-import com.heavenhr.rproc.rproc.messaging.RabbitNotificationService;
+import com.heavenhr.rproc.rproc.pagination.KeysetCursor;
 import com.heavenhr.rproc.rproc.recourseassemblers.ApplicationResourceAssembler;
 import com.heavenhr.rproc.rproc.recourseassemblers.OfferResourceAssembler;
 import com.heavenhr.rproc.rproc.repositories.ApplicationRepository;
@@ -16,10 +18,13 @@ import com.heavenhr.rproc.rproc.storage.StorageService;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.Resource;
 import org.springframework.http.MediaType;
@@ -32,9 +37,10 @@ import java.util.*;
 
 import static org.hamcrest.Matchers.*;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -51,9 +57,6 @@ public class OfferControllerTest {
     @MockBean
     private ApplicationRepository applicationRepository;
 
-    @MockBean
-    private RabbitNotificationService rabbitNotificationService;
-
     @MockBean
     private OfferResourceAssembler offerResourceAssembler;
 
@@ -74,10 +77,7 @@ public class OfferControllerTest {
         offer = new Offer();
         offer.setId(1);
         //  make it in the future
-        offer.setStartDate(LocalDate.of(
-                2019,
-                LocalDate.now().getMonth().getValue() + 1,
-                23));
+        offer.setStartDate(LocalDate.now().plusMonths(1));
         offer.setJobTitle("job title");
 
         application = new Application();
@@ -117,7 +117,9 @@ public class OfferControllerTest {
     @WithMockUser(username = "hr")
     @Test
     public void allOffers_withSomeOffers() throws Exception{
-        when(offerRepository.findAll()).thenReturn(Arrays.asList(offer));
+        when(offerRepository.findAllByIdGreaterThanOrderByIdAsc(
+                ArgumentMatchers.eq(0L),
+                ArgumentMatchers.any(Pageable.class))).thenReturn(Arrays.asList(offer));
         when(offerResourceAssembler.toResource(offer)).thenReturn(new Resource<>(offer));
 
         mockMvc.perform(
@@ -126,10 +128,72 @@ public class OfferControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$._embedded").exists())
                 .andExpect(jsonPath("$._links.self.href").exists())
+                .andExpect(jsonPath("$._links.next").doesNotExist())
                 .andExpect(jsonPath("$._embedded.offers", hasSize(1)))
                 .andExpect(jsonPath("$._embedded.offers[0].jobTitle", is(offer.getJobTitle())));
     }
 
+    @WithMockUser(username = "hr")
+    @Test
+    public void allOffers_withMoreOffersThanPageSize() throws Exception{
+        //  page size + 1 rows are requested from the repository
+        when(offerRepository.findAllByIdGreaterThanOrderByIdAsc(
+                ArgumentMatchers.eq(0L),
+                ArgumentMatchers.eq(PageRequest.of(0, 2)))).thenReturn(Arrays.asList(offer, offer2));
+        when(offerResourceAssembler.toResource(offer)).thenReturn(new Resource<>(offer));
+
+        mockMvc.perform(
+                get("/offers?size=1")
+                    .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.offers", hasSize(1)))
+                .andExpect(jsonPath("$._embedded.offers[0].jobTitle", is(offer.getJobTitle())))
+                .andExpect(jsonPath("$._links.next.href",
+                        containsString("cursor=" + KeysetCursor.encode(offer.getId()))))
+                .andExpect(jsonPath("$._links.self.href", org.hamcrest.Matchers.endsWith("/offers?size=1")))
+                .andExpect(jsonPath("$._embedded.offers[0].numberOfApplications", is(0)));
+
+        //  funnels are read for the page's offers only, in a single call
+        verify(offerRepository, times(1)).findFunnelsByOfferIdIn(Collections.singletonList(offer.getId()));
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void allOffers_withMatchingETag() throws Exception{
+        when(offerRepository.findVersionsByIdGreaterThan(
+                ArgumentMatchers.eq(0L),
+                ArgumentMatchers.any(Pageable.class))).thenReturn(Arrays.asList(new VersionedId(1, 0), new VersionedId(2, 5)));
+
+        String eTag = mockMvc.perform(
+                get("/offers")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(
+                get("/offers")
+                        .header("If-None-Match", eTag)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified());
+
+        //  offers are loaded only for the first request
+        verify(offerRepository, times(1)).findAllByIdGreaterThanOrderByIdAsc(
+                ArgumentMatchers.eq(0L),
+                ArgumentMatchers.any(Pageable.class));
+
+        //  one of the offers changed
+        when(offerRepository.findVersionsByIdGreaterThan(
+                ArgumentMatchers.eq(0L),
+                ArgumentMatchers.any(Pageable.class))).thenReturn(Arrays.asList(new VersionedId(1, 1), new VersionedId(2, 5)));
+
+        mockMvc.perform(
+                get("/offers")
+                        .header("If-None-Match", eTag)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(eTag)));
+    }
+
     @Test
     public void getOfferById_withUnauthorizedUser() throws Exception{
         mockMvc.perform(
@@ -142,22 +206,109 @@ public class OfferControllerTest {
     @WithMockUser(username = "hr")
     @Test
     public void testGetOfferByIdWithValidId() throws Exception{
-        when(offerRepository.findById(1)).thenReturn(Optional.of(offer));
+        when(offerRepository.findVersionById(1L)).thenReturn(Optional.of(3L));
+        when(offerRepository.findById(1L)).thenReturn(Optional.of(offer));
         when(offerResourceAssembler.toResource(offer)).thenReturn(new Resource<>(offer));
 
         mockMvc.perform(
                 get("/offers/1")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.id", is(offer.getId())))
+                .andExpect(header().string("ETag", is("\"3\"")))
+                .andExpect(jsonPath("$.id").value(is(offer.getId()), Long.class))
                 .andExpect(jsonPath("$.jobTitle", is(offer.getJobTitle())))
-                .andExpect(jsonPath("$.startDate", is(offer.getStartDate().toString())));
+                .andExpect(jsonPath("$.startDate", is(offer.getStartDate().toString())))
+                .andExpect(jsonPath("$.version").doesNotExist());
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void getOfferById_withMatchingETag() throws Exception{
+        when(offerRepository.findVersionById(1L)).thenReturn(Optional.of(3L));
+
+        mockMvc.perform(
+                get("/offers/1")
+                        .header("If-None-Match", "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", is("\"3\"")))
+                .andExpect(content().string(""));
+
+        verify(offerRepository, never()).findById(1L);
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void getOfferById_withStaleETag() throws Exception{
+        when(offerRepository.findVersionById(1L)).thenReturn(Optional.of(4L));
+        when(offerRepository.findById(1L)).thenReturn(Optional.of(offer));
+        when(offerResourceAssembler.toResource(offer)).thenReturn(new Resource<>(offer));
+
+        mockMvc.perform(
+                get("/offers/1")
+                        .header("If-None-Match", "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", is("\"4\"")))
+                .andExpect(jsonPath("$.jobTitle", is(offer.getJobTitle())));
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void getOfferById_withFunnel() throws Exception{
+        OfferFunnel offerFunnel = new OfferFunnel();
+        offerFunnel.addTransition(null, ApplicationStatus.APPLIED);
+        offerFunnel.addTransition(null, ApplicationStatus.APPLIED);
+        offerFunnel.addTransition(ApplicationStatus.APPLIED, ApplicationStatus.INVITED);
+        when(offerRepository.findFunnelById(1L)).thenReturn(Optional.of(offerFunnel));
+        when(offerRepository.findVersionById(1L)).thenReturn(Optional.of(0L));
+        when(offerRepository.findById(1L)).thenReturn(Optional.of(offer));
+        when(offerResourceAssembler.toResource(offer)).thenReturn(new Resource<>(offer));
+
+        mockMvc.perform(
+                get("/offers/1")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numberOfApplications", is(2)))
+                .andExpect(jsonPath("$.funnel.total", is(2)))
+                .andExpect(jsonPath("$.funnel.applied", is(1)))
+                .andExpect(jsonPath("$.funnel.invited", is(1)))
+                .andExpect(jsonPath("$.funnel.rejected", is(0)))
+                .andExpect(jsonPath("$.funnel.hired", is(0)));
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void getOfferFunnel_withValidId() throws Exception{
+        when(offerRepository.findFunnelById(1)).thenReturn(Optional.of(new OfferFunnel(5, 1, 2, 1, 1)));
+
+        mockMvc.perform(
+                get("/offers/1/funnel")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total", is(5)))
+                .andExpect(jsonPath("$.applied", is(1)))
+                .andExpect(jsonPath("$.invited", is(2)))
+                .andExpect(jsonPath("$.rejected", is(1)))
+                .andExpect(jsonPath("$.hired", is(1)));
+    }
+
+    @WithMockUser(username = "hr")
+    @Test
+    public void getOfferFunnel_withInvalidId() throws Exception{
+        when(offerRepository.findFunnelById(1)).thenReturn(Optional.empty());
+
+        mockMvc.perform(
+                get("/offers/1/funnel")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.errorMessage", containsString("Error: offer with #")));
     }
 
     @WithMockUser(username = "hr")
     @Test
     public void testGetOfferByIdWithInvalidId() throws Exception{
-        when(offerRepository.findById(1)).thenReturn(Optional.empty());
+        when(offerRepository.findVersionById(1L)).thenReturn(Optional.empty());
 
         mockMvc.perform(
                 get("/offers/1")
@@ -194,7 +345,7 @@ public class OfferControllerTest {
                 )
                 .andExpect(status().isCreated())
                 .andExpect(header().string("Location", is(createdLink)))
-                .andExpect(jsonPath("$.id", is(offer.getId())))
+                .andExpect(jsonPath("$.id").value(is(offer.getId()), Long.class))
                 .andExpect(jsonPath("$.jobTitle", is(offer.getJobTitle())))
                 .andExpect(jsonPath("$.startDate", is(offer.getStartDate().toString())))
                 .andExpect(jsonPath("$._links.self.href", is(createdLink)));
@@ -0,0 +1,67 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.duplicates;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BloomFilterTest {
+    private static final int INSERTIONS = 10000;
+
+    private static String email(int i){
+        return "applicant" + i + "@email.com";
+    }
+
+    @Test
+    public void testSize(){
+        BloomFilter bloomFilter = new BloomFilter(INSERTIONS, 0.01);
+
+        //  ~9.6 bits and ~7 hashes per element for 1%
+        assertEquals(95872, bloomFilter.getNumberOfBits());
+        assertEquals(7, bloomFilter.getNumberOfHashes());
+    }
+
+    @Test
+    public void testNoFalseNegatives(){
+        BloomFilter bloomFilter = new BloomFilter(INSERTIONS, 0.01);
+        for (int i = 0; i < INSERTIONS; i++) bloomFilter.put(email(i));
+
+        for (int i = 0; i < INSERTIONS; i++) assertTrue(bloomFilter.mightContain(email(i)));
+    }
+
+    @Test
+    public void testFalsePositiveProbability(){
+        BloomFilter bloomFilter = new BloomFilter(INSERTIONS, 0.01);
+        for (int i = 0; i < INSERTIONS; i++) bloomFilter.put(email(i));
+
+        int falsePositives = 0;
+        for (int i = INSERTIONS; i < 11 * INSERTIONS; i++){
+            if (bloomFilter.mightContain(email(i))) falsePositives++;
+        }
+
+        //  1% of 10 * INSERTIONS lookups expected
+        assertTrue("false positives: " + falsePositives, falsePositives < 2 * 10 * INSERTIONS / 100);
+    }
+
+    @Test
+    public void testEmpty(){
+        BloomFilter bloomFilter = new BloomFilter(INSERTIONS, 0.01);
+
+        assertFalse(bloomFilter.mightContain(email(0)));
+        assertFalse(bloomFilter.mightContain(""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidExpectedInsertions(){
+        new BloomFilter(0, 0.01);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidFalsePositiveProbability(){
+        new BloomFilter(INSERTIONS, 1);
+    }
+}
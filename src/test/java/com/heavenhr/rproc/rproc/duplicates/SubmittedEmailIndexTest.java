@@ -0,0 +1,92 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.duplicates;
+
+import com.heavenhr.rproc.rproc.entities.Application;
+import com.heavenhr.rproc.rproc.entities.Offer;
+import com.heavenhr.rproc.rproc.repositories.ApplicationRepository;
+import com.heavenhr.rproc.rproc.storage.StorageService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class SubmittedEmailIndexTest {
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private ApplicationRepository applicationRepository;
+
+    /**
+     * not a bean, the one in the context is warmed up on startup
+     */
+    private SubmittedEmailIndex submittedEmailIndex;
+
+    @MockBean
+    private StorageService storageService;
+
+    private Offer offer1, offer2;
+
+    private Offer createOffer(String jobTitle){
+        Offer offer = new Offer();
+        offer.setJobTitle(jobTitle);
+
+        return testEntityManager.persist(offer);
+    }
+
+    private void createApplication(Offer offer, String email){
+        Application application = new Application();
+        application.setEmail(email);
+        application.setOffer(offer);
+        testEntityManager.persist(application);
+    }
+
+    @Before
+    public void createEntities(){
+        offer1 = createOffer("index job title1");
+        offer2 = createOffer("index job title2");
+        createApplication(offer1, "submitted1@email.com");
+        createApplication(offer2, "submitted2@email.com");
+        testEntityManager.flush();
+
+        submittedEmailIndex = new SubmittedEmailIndex(applicationRepository, 100, 0.01);
+    }
+
+    @Test
+    public void mightContain_beforeWarmUp(){
+        assertFalse(submittedEmailIndex.isWarmedUp());
+        assertTrue(submittedEmailIndex.mightContain(offer1.getId(), "new@email.com"));
+    }
+
+    @Test
+    public void mightContain_afterWarmUp(){
+        submittedEmailIndex.warmUp();
+
+        assertTrue(submittedEmailIndex.isWarmedUp());
+        assertTrue(submittedEmailIndex.mightContain(offer1.getId(), "submitted1@email.com"));
+        assertTrue(submittedEmailIndex.mightContain(offer2.getId(), "submitted2@email.com"));
+        assertFalse(submittedEmailIndex.mightContain(offer1.getId(), "new@email.com"));
+        assertFalse(submittedEmailIndex.mightContain(offer2.getId(), "submitted1@email.com"));
+        assertFalse(submittedEmailIndex.mightContain(offer2.getId() + 1, "submitted2@email.com"));
+    }
+
+    @Test
+    public void mightContain_afterPut(){
+        submittedEmailIndex.warmUp();
+        submittedEmailIndex.put(offer1.getId(), "new@email.com");
+
+        assertTrue(submittedEmailIndex.mightContain(offer1.getId(), "new@email.com"));
+        assertFalse(submittedEmailIndex.mightContain(offer2.getId(), "new@email.com"));
+    }
+}
@@ -4,7 +4,10 @@
 package com.heavenhr.rproc.rproc.entities;
 
 import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import com.heavenhr.rproc.rproc.pagination.TimeKeysetCursor;
+import com.heavenhr.rproc.rproc.repositories.ApplicationStatusHistoryRepository;
 import com.heavenhr.rproc.rproc.storage.StorageService;
+import org.hibernate.Session;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -12,8 +15,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
 import static junit.framework.TestCase.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -24,6 +33,9 @@ public class ApplicationStatusHistoryTest {
     @Autowired
     private TestEntityManager testEntityManager;
 
+    @Autowired
+    private ApplicationStatusHistoryRepository applicationStatusHistoryRepository;
+
     @MockBean
     private StorageService storageService;
 
@@ -50,11 +62,11 @@ public class ApplicationStatusHistoryTest {
 
         testEntityManager.persistAndFlush(offer);
 
-        Integer offerId = testEntityManager.getId(offer, Integer.class);
+        Long offerId = testEntityManager.getId(offer, Long.class);
         assertNotNull(offerId);
         assertTrue(offerId > 0);
 
-        Integer applicationId = testEntityManager.getId(application, Integer.class);
+        Long applicationId = testEntityManager.getId(application, Long.class);
         assertNotNull(applicationId);
         assertTrue(applicationId > 0);
 
@@ -64,4 +76,84 @@ public class ApplicationStatusHistoryTest {
         applicationTest.getApplicationStatusHistories().forEach(h -> System.out.println("history item# " + h));
         assertEquals(1, applicationTest.getApplicationStatusHistories().size());
     }
+
+    /**
+     * application is applied, invited and hired on the following days starting from the date
+     *
+     * @param appliedAt
+     */
+    private void createHiredApplication(LocalDateTime appliedAt){
+        createEntities();
+        application.setApplicationStatus(ApplicationStatus.INVITED);
+        application.setApplicationStatus(ApplicationStatus.HIRED);
+
+        List<ApplicationStatusHistory> histories = application.getApplicationStatusHistories();
+        for (int i = 0; i < histories.size(); i++){
+            histories.get(i).setDateTime(appliedAt.plusDays(i));
+        }
+
+        testEntityManager.persistAndFlush(offer);
+        testEntityManager.clear();
+    }
+
+    private static List<ApplicationStatus> statusesOf(List<ApplicationStatusHistoryItem> history){
+        return history.stream().map(ApplicationStatusHistoryItem::getApplicationStatus).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testFindItemsByApplicationIdAfter(){
+        createHiredApplication(LocalDateTime.of(2019, 1, 20, 10, 0));
+
+        List<ApplicationStatusHistoryItem> history = applicationStatusHistoryRepository.findItemsByApplicationIdAfter(
+                application.getId(),
+                TimeKeysetCursor.BEGINNING,
+                0,
+                PageRequest.of(0, 10));
+        assertEquals(
+                Arrays.asList(ApplicationStatus.APPLIED, ApplicationStatus.INVITED, ApplicationStatus.HIRED),
+                statusesOf(history));
+        assertTrue(history.stream().allMatch(h -> h.getApplicationId() == application.getId()));
+
+        //  items are selected directly, neither the application nor its histories are loaded
+        Session session = testEntityManager.getEntityManager().unwrap(Session.class);
+        assertEquals(0, session.getStatistics().getEntityCount());
+        assertEquals(0, session.getStatistics().getCollectionCount());
+
+        //  the next page starts right after the last seen item
+        ApplicationStatusHistoryItem applied = history.get(0);
+        history = applicationStatusHistoryRepository.findItemsByApplicationIdAfter(
+                application.getId(),
+                applied.getDateTime(),
+                applied.getId(),
+                PageRequest.of(0, 1));
+        assertEquals(Arrays.asList(ApplicationStatus.INVITED), statusesOf(history));
+
+        history = applicationStatusHistoryRepository.findItemsByApplicationIdAfter(
+                application.getId() + 1,
+                TimeKeysetCursor.BEGINNING,
+                0,
+                PageRequest.of(0, 10));
+        assertTrue(history.isEmpty());
+    }
+
+    @Test
+    public void testFindItemsAfter(){
+        createHiredApplication(LocalDateTime.of(2019, 1, 20, 10, 0));
+
+        //  the period covers the invitation and the hiring
+        List<ApplicationStatusHistoryItem> history = applicationStatusHistoryRepository.findItemsAfter(
+                LocalDateTime.of(2019, 1, 21, 10, 0),
+                0,
+                LocalDateTime.of(2019, 1, 23, 0, 0),
+                PageRequest.of(0, 10));
+        assertEquals(Arrays.asList(ApplicationStatus.INVITED, ApplicationStatus.HIRED), statusesOf(history));
+
+        //  the end of the period is exclusive
+        history = applicationStatusHistoryRepository.findItemsAfter(
+                LocalDateTime.of(2019, 1, 20, 0, 0),
+                0,
+                LocalDateTime.of(2019, 1, 22, 10, 0),
+                PageRequest.of(0, 10));
+        assertEquals(Arrays.asList(ApplicationStatus.APPLIED, ApplicationStatus.INVITED), statusesOf(history));
+    }
 }
@@ -5,8 +5,12 @@ package com.heavenhr.rproc.rproc.entities;
 
 import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
 import com.heavenhr.rproc.rproc.repositories.ApplicationRepository;
+import com.heavenhr.rproc.rproc.repositories.OfferRepository;
 import com.heavenhr.rproc.rproc.storage.StorageService;
 import com.heavenhr.rproc.rproc.testutils.AssertValidation;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -14,26 +18,40 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import javax.persistence.EntityManagerFactory;
 import javax.validation.Validation;
 import javax.validation.Validator;
 import javax.validation.ValidatorFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static junit.framework.TestCase.assertNull;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 @RunWith(SpringRunner.class)
 @DataJpaTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 public class ApplicationTest {
     @Autowired
     private TestEntityManager testEntityManager;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Autowired
     private ApplicationRepository applicationRepository;
 
+    @Autowired
+    private OfferRepository offerRepository;
+
     @MockBean
     private StorageService storageService;
 
@@ -140,21 +158,21 @@ public class ApplicationTest {
 
         testEntityManager.persistAndFlush(offer);
 
-        Integer offerId = testEntityManager.getId(offer, Integer.class);
+        Long offerId = testEntityManager.getId(offer, Long.class);
         assertNotNull(offerId);
         assertTrue(offerId > 0);
 
         Offer offerTest = testEntityManager.find(Offer.class, offerId);
         assertEquals(2, offerTest.getApplications().size());
 
-        Integer applicationId1 = testEntityManager.getId(application1, Integer.class);
+        Long applicationId1 = testEntityManager.getId(application1, Long.class);
         assertNotNull(applicationId1);
         assertTrue(applicationId1 > 0);
 
         Application applicationTest = testEntityManager.find(Application.class, applicationId1);
         assertEquals(email1, applicationTest.getEmail());
 
-        Integer applicationId2 = testEntityManager.getId(application2, Integer.class);
+        Long applicationId2 = testEntityManager.getId(application2, Long.class);
         assertNotNull(applicationId2);
         assertTrue(applicationId2 > 0);
 
@@ -234,15 +252,15 @@ public class ApplicationTest {
         createEntities();
         testEntityManager.persistAndFlush(offer);
 
-        Integer offerId = testEntityManager.getId(offer, Integer.class);
+        Long offerId = testEntityManager.getId(offer, Long.class);
         assertNotNull(offerId);
         assertTrue(offerId > 0);
 
-        Integer applicationId1 = testEntityManager.getId(application1, Integer.class);
+        Long applicationId1 = testEntityManager.getId(application1, Long.class);
         assertNotNull(applicationId1);
         assertTrue(applicationId1 > 0);
 
-        Integer applicationId2 = testEntityManager.getId(application2, Integer.class);
+        Long applicationId2 = testEntityManager.getId(application2, Long.class);
         assertNotNull(applicationId2);
         assertTrue(applicationId2 > 0);
 
@@ -256,4 +274,149 @@ public class ApplicationTest {
         assertTrue(!offer.getApplications().contains(application1));
         assertTrue(offer.getApplications().contains(application2));
     }
+
+    /**
+     * persists an offer with the number of applications and submits one more application to it
+     *
+     * @param numberOfApplications
+     * @return number of sql statements executed for the submission
+     */
+    private long submitApplicationToOfferWith(int numberOfApplications){
+        Offer offer = new Offer();
+        offer.setJobTitle("job title #" + numberOfApplications);
+        for (int i = 0; i < numberOfApplications; i++){
+            Application application = new Application();
+            application.setEmail("email" + i + "@email.com");
+            application.setOffer(offer);
+        }
+        testEntityManager.persistAndFlush(offer);
+        testEntityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Offer offerManaged = testEntityManager.find(Offer.class, offer.getId());
+        Application application = new Application();
+        application.setEmail("new.email@email.com");
+        application.setOffer(offerManaged);
+        testEntityManager.persistAndFlush(application);
+
+        long statements = statistics.getPrepareStatementCount();
+
+        //  removal must not load the offer's applications as well
+        Application applicationRemoved = new Application();
+        applicationRemoved.setOffer(offerManaged);
+        applicationRemoved.setOffer(null);
+        assertFalse(Hibernate.isInitialized(offerManaged.getApplications()));
+        assertEquals(statements, statistics.getPrepareStatementCount());
+
+        return statements;
+    }
+
+    @Test
+    public void testSubmissionStatementsDoNotDependOnOfferSize(){
+        long statementsForSmallOffer = submitApplicationToOfferWith(1);
+        long statementsForLargeOffer = submitApplicationToOfferWith(50);
+
+        assertTrue(statementsForSmallOffer > 0);
+        assertEquals(statementsForSmallOffer, statementsForLargeOffer);
+    }
+
+    @Test
+    public void testListPagesUseSingleStatement(){
+        createEntities();
+        testEntityManager.persistAndFlush(offer);
+        testEntityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<ApplicationSummary> summaries = applicationRepository.findSummariesByIdGreaterThan(0, PageRequest.of(0, 10));
+        assertEquals(2, summaries.size());
+        assertEquals(email1, summaries.get(0).getEmail());
+        assertEquals(offer.getId(), summaries.get(0).getOfferId());
+        assertEquals(ApplicationStatus.APPLIED, summaries.get(0).getApplicationStatus());
+
+        summaries = applicationRepository.findSummariesByOfferAndIdGreaterThan(
+                offer,
+                summaries.get(0).getId(),
+                PageRequest.of(0, 10));
+        assertEquals(1, summaries.size());
+        assertEquals(email2, summaries.get(0).getEmail());
+
+        List<Offer> offers = offerRepository.findAllByIdGreaterThanOrderByIdAsc(0, PageRequest.of(0, 10));
+        offerRepository.findFunnelsByOfferIdIn(offers.stream().map(Offer::getId).collect(Collectors.toList()));
+
+        //  offers' funnels are read for the whole page at once
+        assertEquals(4, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testStatusFilter(){
+        createEntities();
+        testEntityManager.persistAndFlush(offer);
+        application2.setApplicationStatus(ApplicationStatus.INVITED);
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        List<ApplicationSummary> summaries = applicationRepository.findSummariesByOfferAndApplicationStatusAndIdGreaterThan(
+                offer,
+                ApplicationStatus.INVITED,
+                0,
+                PageRequest.of(0, 10));
+        assertEquals(1, summaries.size());
+        assertEquals(email2, summaries.get(0).getEmail());
+
+        summaries = applicationRepository.findSummariesByApplicationStatusAndIdGreaterThan(
+                ApplicationStatus.APPLIED,
+                0,
+                PageRequest.of(0, 10));
+        assertEquals(1, summaries.size());
+        assertEquals(email1, summaries.get(0).getEmail());
+
+        assertEquals(1, applicationRepository.findVersionsByOfferAndApplicationStatusAndIdGreaterThan(
+                offer,
+                ApplicationStatus.INVITED,
+                0,
+                PageRequest.of(0, 10)).size());
+    }
+
+    /**
+     * the indexes behind the status filter and the history lookups are part of the generated schema
+     */
+    @Test
+    public void testStatusFilterIndexes(){
+        assertEquals(Arrays.asList("OFFER_ID", "APPLICATION_STATUS", "ID"),
+                indexColumns("IDX_APPLICATIONS_OFFER_STATUS"));
+        assertEquals(Arrays.asList("APPLICATION_ID", "DATE_TIME"),
+                indexColumns("IDX_APP_STATUS_HISTORY_APPLICATION_DATE"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> indexColumns(String indexName){
+        return (List<String>)testEntityManager.getEntityManager().createNativeQuery(
+                "select column_name from information_schema.indexes " +
+                "where index_name = :indexName order by ordinal_position")
+                .setParameter("indexName", indexName)
+                .getResultList()
+                .stream()
+                .map(Object::toString)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testFindWithOfferById(){
+        createEntities();
+        testEntityManager.persistAndFlush(offer);
+        testEntityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Application applicationTest = applicationRepository.findWithOfferById(application1.getId()).get();
+        assertTrue(Hibernate.isInitialized(applicationTest.getOffer()));
+        assertEquals(offer.getJobTitle(), applicationTest.getOffer().getJobTitle());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
 }
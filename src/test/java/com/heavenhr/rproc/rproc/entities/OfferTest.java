@@ -3,9 +3,11 @@
  */
 package com.heavenhr.rproc.rproc.entities;
 
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
 import com.heavenhr.rproc.rproc.repositories.OfferRepository;
 import com.heavenhr.rproc.rproc.storage.StorageService;
 import com.heavenhr.rproc.rproc.testutils.AssertValidation;
+import org.hibernate.Hibernate;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -26,8 +28,10 @@ import java.time.LocalDate;
 import static com.heavenhr.rproc.rproc.testutils.AssertValidation.getString;
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 @RunWith(SpringRunner.class)
 @DataJpaTest
@@ -94,7 +98,7 @@ public class OfferTest {
 
         testEntityManager.persistAndFlush(offer);
 
-        Integer offerId = testEntityManager.getId(offer, Integer.class);
+        Long offerId = testEntityManager.getId(offer, Long.class);
         assertNotNull(offerId);
         assertTrue(offerId > 0);
 
@@ -113,7 +117,7 @@ public class OfferTest {
         LocalDate startDate = LocalDate.now();
         testEntityManager.persistAndFlush(offer);
 
-        Integer offerId = testEntityManager.getId(offer, Integer.class);
+        Long offerId = testEntityManager.getId(offer, Long.class);
         assertNotNull(offerId);
         assertTrue(offerId > 0);
 
@@ -125,6 +129,39 @@ public class OfferTest {
         assertEquals(startDate, offerTest.getStartDate());
     }
 
+    @Test
+    public void testUpdateFunnel(){
+        Offer offer = new Offer();
+        offer.setJobTitle(getString(7));
+        testEntityManager.persistAndFlush(offer);
+
+        Application application = new Application();
+        application.setEmail("email@email.com");
+        application.setOffer(offer);
+        testEntityManager.persistAndFlush(application);
+        testEntityManager.clear();
+
+        long version = offerRepository.findVersionById(offer.getId()).get();
+
+        assertEquals(1, offerRepository.updateFunnel(offer.getId(), OfferFunnel.ofTransition(null, ApplicationStatus.APPLIED)));
+        assertEquals(1, offerRepository.updateFunnel(offer.getId(), OfferFunnel.ofTransition(null, ApplicationStatus.APPLIED)));
+        assertEquals(1, offerRepository.updateFunnel(
+                offer.getId(),
+                OfferFunnel.ofTransition(ApplicationStatus.APPLIED, ApplicationStatus.INVITED)));
+        testEntityManager.clear();
+
+        OfferFunnel offerFunnel = offerRepository.findFunnelById(offer.getId()).get();
+        assertEquals(new OfferFunnel(2, 1, 1, 0, 0), offerFunnel);
+        //  every funnel update changes offer's ETag
+        assertEquals(version + 3, (long) offerRepository.findVersionById(offer.getId()).get());
+
+        Offer offerTest = testEntityManager.find(Offer.class, offer.getId());
+        //  the funnel is not loaded with the offer
+        assertNull(offerTest.getFunnel());
+        //  counters do not need applications to be loaded
+        assertFalse(Hibernate.isInitialized(offerTest.getApplications()));
+    }
+
     @Test(expected = PersistenceException.class)
     public void testJobTitleUniqueness(){
         String jobTitle = getString(6);
@@ -134,7 +171,7 @@ public class OfferTest {
 
         testEntityManager.persistAndFlush(offer);
 
-        Integer offerId = testEntityManager.getId(offer, Integer.class);
+        Long offerId = testEntityManager.getId(offer, Long.class);
         assertNotNull(offerId);
         assertTrue(offerId > 0);
 
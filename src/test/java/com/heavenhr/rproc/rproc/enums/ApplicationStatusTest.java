@@ -0,0 +1,87 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.enums;
+
+import com.heavenhr.rproc.rproc.entities.Application;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ApplicationStatusTest {
+    private static final List<ApplicationStatus[]> ALLOWED = Arrays.asList(
+            new ApplicationStatus[]{null, ApplicationStatus.APPLIED},
+            new ApplicationStatus[]{ApplicationStatus.APPLIED, ApplicationStatus.INVITED},
+            new ApplicationStatus[]{ApplicationStatus.APPLIED, ApplicationStatus.REJECTED},
+            new ApplicationStatus[]{ApplicationStatus.INVITED, ApplicationStatus.REJECTED},
+            new ApplicationStatus[]{ApplicationStatus.INVITED, ApplicationStatus.HIRED});
+
+    private static boolean isAllowed(ApplicationStatus from, ApplicationStatus to){
+        return ALLOWED.stream().anyMatch(t -> t[0] == from && t[1] == to);
+    }
+
+    private static Set<ApplicationStatus> allWithNull(){
+        Set<ApplicationStatus> statuses = new HashSet<>(EnumSet.allOf(ApplicationStatus.class));
+        statuses.add(null);
+
+        return statuses;
+    }
+
+    @Test
+    public void testTransitionTable(){
+        for (ApplicationStatus from: allWithNull()){
+            for (ApplicationStatus to: allWithNull()){
+                assertEquals(
+                        from + " -> " + to,
+                        isAllowed(from, to),
+                        ApplicationStatus.isTransitionAllowed(from, to));
+            }
+        }
+    }
+
+    /**
+     * moves a new application to the status by allowed flow
+     */
+    private static Application applicationWithStatus(ApplicationStatus applicationStatus){
+        Application application = new Application();
+        if (applicationStatus == null) return application;
+
+        application.setApplicationStatus(ApplicationStatus.APPLIED);
+        if (applicationStatus == ApplicationStatus.HIRED){
+            application.setApplicationStatus(ApplicationStatus.INVITED);
+        }
+        if (application.getApplicationStatus() != applicationStatus){
+            application.setApplicationStatus(applicationStatus);
+        }
+
+        return application;
+    }
+
+    @Test
+    public void testSetApplicationStatusErrors(){
+        for (ApplicationStatus from: allWithNull()){
+            for (ApplicationStatus to: EnumSet.allOf(ApplicationStatus.class)){
+                if (isAllowed(from, to)) continue;
+
+                Application application = applicationWithStatus(from);
+                try{
+                    application.setApplicationStatus(to);
+                    fail(from + " -> " + to + " must not be allowed");
+                }catch (IllegalArgumentException e){
+                    String expected = from == to ?
+                            String.format("status is already set to '%s'", to) :
+                            "Application status is incorrect";
+                    assertEquals(expected, e.getMessage());
+                }
+                assertEquals(from, application.getApplicationStatus());
+            }
+        }
+    }
+}
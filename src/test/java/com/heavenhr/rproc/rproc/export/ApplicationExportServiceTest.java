@@ -0,0 +1,122 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.export;
+
+import com.heavenhr.rproc.rproc.entities.Application;
+import com.heavenhr.rproc.rproc.entities.Offer;
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import com.heavenhr.rproc.rproc.storage.StorageService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import(ApplicationExportService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+public class ApplicationExportServiceTest {
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private ApplicationExportService applicationExportService;
+
+    @MockBean
+    private StorageService storageService;
+
+    private Offer offer1, offer2;
+
+    private Application createApplication(Offer offer, String email){
+        Application application = new Application();
+        application.setOffer(offer);
+        application.setEmail(email);
+        application.setApplicationStatus(ApplicationStatus.APPLIED);
+
+        return application;
+    }
+
+    @Before
+    public void createEntities(){
+        offer1 = new Offer();
+        offer1.setJobTitle("export job title1");
+        createApplication(offer1, "email1@email.com");
+        createApplication(offer1, "email2@email.com")
+                .setApplicationStatus(ApplicationStatus.INVITED);
+
+        offer2 = new Offer();
+        offer2.setJobTitle("export job title2");
+        createApplication(offer2, "email3@email.com");
+
+        testEntityManager.persist(offer1);
+        testEntityManager.persist(offer2);
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    private String[] export(
+            Offer offer,
+            ApplicationStatus applicationStatus,
+            LocalDate from,
+            LocalDate to) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        long exported = applicationExportService.export(
+                offer,
+                applicationStatus,
+                from == null ? null : from.atStartOfDay(),
+                to == null ? null : to.plusDays(1).atStartOfDay(),
+                outputStream);
+
+        String content = new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+        String[] lines = content.isEmpty() ? new String[0] : content.split("\n");
+        assertEquals(exported, lines.length);
+
+        return lines;
+    }
+
+    @Test
+    public void testExportWithNoFilters() throws IOException {
+        String[] lines = export(null, null, null, null);
+
+        assertEquals(3, lines.length);
+        assertThat(lines[0], containsString("\"email\":\"email1@email.com\""));
+        assertThat(lines[1], containsString("\"email\":\"email2@email.com\""));
+        assertThat(lines[2], containsString("\"email\":\"email3@email.com\""));
+    }
+
+    @Test
+    public void testExportWithOfferAndStatus() throws IOException {
+        assertEquals(2, export(offer1, null, null, null).length);
+        assertEquals(1, export(offer2, null, null, null).length);
+
+        String[] lines = export(offer1, ApplicationStatus.INVITED, null, null);
+        assertEquals(1, lines.length);
+        assertThat(lines[0], containsString("\"applicationStatus\":\"INVITED\""));
+    }
+
+    @Test
+    public void testExportWithDates() throws IOException {
+        LocalDate today = LocalDate.now();
+
+        assertEquals(3, export(null, null, today, today).length);
+        assertEquals(0, export(null, null, today.plusDays(1), null).length);
+        assertEquals(0, export(null, null, null, today.minusDays(1)).length);
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.funnel;
+
+import com.heavenhr.rproc.rproc.entities.Application;
+import com.heavenhr.rproc.rproc.entities.Offer;
+import com.heavenhr.rproc.rproc.entities.OfferFunnel;
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import com.heavenhr.rproc.rproc.repositories.OfferRepository;
+import com.heavenhr.rproc.rproc.storage.StorageService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import(OfferFunnelBackfill.class)
+public class OfferFunnelBackfillTest {
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private OfferFunnelBackfill offerFunnelBackfill;
+
+    @MockBean
+    private StorageService storageService;
+
+    private Offer legacyOffer, offer;
+
+    private Offer createOffer(String jobTitle){
+        Offer offer = new Offer();
+        offer.setJobTitle(jobTitle);
+
+        return testEntityManager.persist(offer);
+    }
+
+    private void createApplication(Offer offer, String email, ApplicationStatus... applicationStatuses){
+        Application application = new Application();
+        application.setEmail(email);
+        application.setOffer(offer);
+        for (ApplicationStatus applicationStatus: applicationStatuses){
+            application.setApplicationStatus(applicationStatus);
+        }
+
+        testEntityManager.persist(application);
+    }
+
+    /**
+     * applications are persisted directly, so counters are not updated,
+     * and the first offer's funnel is deleted as if the offer was created before funnels were maintained
+     */
+    @Before
+    public void createEntities(){
+        legacyOffer = createOffer("backfill job title1");
+        createApplication(legacyOffer, "applied@email.com", ApplicationStatus.APPLIED);
+        createApplication(legacyOffer, "invited@email.com", ApplicationStatus.APPLIED, ApplicationStatus.INVITED);
+        createApplication(legacyOffer, "rejected@email.com", ApplicationStatus.APPLIED, ApplicationStatus.REJECTED);
+
+        offer = createOffer("backfill job title2");
+        createApplication(offer, "applied@email.com", ApplicationStatus.APPLIED);
+
+        testEntityManager.flush();
+        testEntityManager.getEntityManager()
+                .createQuery("delete from OfferFunnel f where f.offerId = :offerId")
+                .setParameter("offerId", legacyOffer.getId())
+                .executeUpdate();
+        testEntityManager.clear();
+    }
+
+    @Test
+    public void testBackfill(){
+        assertFalse(offerRepository.findFunnelById(legacyOffer.getId()).isPresent());
+
+        assertEquals(1, offerFunnelBackfill.backfill());
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        assertEquals(new OfferFunnel(3, 1, 1, 1, 0), offerRepository.findFunnelById(legacyOffer.getId()).get());
+        //  existing funnels are not changed
+        assertEquals(new OfferFunnel(), offerRepository.findFunnelById(offer.getId()).get());
+    }
+
+    @Test
+    public void testBackfillOnce(){
+        offerFunnelBackfill.backfill();
+        testEntityManager.flush();
+        assertEquals(0, offerFunnelBackfill.backfill());
+
+        //  counters are maintained from the counted values on
+        offerRepository.updateFunnel(
+                legacyOffer.getId(),
+                OfferFunnel.ofTransition(ApplicationStatus.INVITED, ApplicationStatus.HIRED));
+        offerRepository.updateFunnel(
+                legacyOffer.getId(),
+                OfferFunnel.ofTransition(null, ApplicationStatus.APPLIED));
+
+        testEntityManager.clear();
+
+        assertEquals(new OfferFunnel(4, 2, 0, 1, 1), offerRepository.findFunnelById(legacyOffer.getId()).get());
+    }
+}
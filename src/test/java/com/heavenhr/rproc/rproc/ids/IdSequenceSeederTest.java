@@ -0,0 +1,129 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.ids;
+
+import com.heavenhr.rproc.rproc.entities.Offer;
+import com.heavenhr.rproc.rproc.repositories.OfferRepository;
+import com.heavenhr.rproc.rproc.storage.StorageService;
+import org.hibernate.dialect.PostgreSQL95Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * tables are altered and filled by plain SQL as if the database was created before ids were allocated
+ * from pooled sequences, schema changes commit, so every statement commits its own
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import(IdSequenceSeeder.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class IdSequenceSeederTest {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private IdSequenceSeeder idSequenceSeeder;
+
+    @MockBean
+    private StorageService storageService;
+
+    private void insertOffer(long id, String jobTitle){
+        jdbcTemplate.update(
+                "insert into offers (id, version, job_title, start_date) values (?, 0, ?, current_date)",
+                id,
+                jobTitle);
+    }
+
+    private String columnType(String table, String column){
+        return jdbcTemplate.queryForObject(
+                "select type_name from information_schema.columns " +
+                "where table_schema = schema() and table_name = ? and column_name = ?",
+                String.class,
+                table,
+                column);
+    }
+
+    /**
+     * ids came from the shared hibernate_sequence, the last one is beyond the first block of offers_seq,
+     * which is just created by the schema update
+     */
+    @Before
+    public void createLegacyOffers(){
+        jdbcTemplate.execute("alter sequence offers_seq restart with 1");
+
+        insertOffer(1, "legacy job title1");
+        insertOffer(2, "legacy job title2");
+        insertOffer(120, "legacy job title3");
+    }
+
+    @After
+    public void deleteEntities(){
+        offerRepository.deleteAll();
+    }
+
+    @Test
+    public void testNewIdsFollowExistingOnes(){
+        assertEquals(1, idSequenceSeeder.seed());
+
+        Offer offer = new Offer();
+        offer.setJobTitle("seeded job title1");
+        assertEquals(121, offerRepository.save(offer).getId());
+
+        offer = new Offer();
+        offer.setJobTitle("seeded job title2");
+        assertEquals(122, offerRepository.save(offer).getId());
+
+        //  the sequence is ahead of the ids now
+        assertEquals(0, idSequenceSeeder.seed());
+    }
+
+    @Test
+    public void testIntIdsAreWidened(){
+        jdbcTemplate.execute("alter table applications alter column id integer not null");
+        jdbcTemplate.execute("alter table applications alter column offer_id integer");
+
+        idSequenceSeeder.seed();
+
+        assertEquals("BIGINT", columnType("APPLICATIONS", "ID"));
+        assertEquals("BIGINT", columnType("APPLICATIONS", "OFFER_ID"));
+        assertEquals("NO", jdbcTemplate.queryForObject(
+                "select is_nullable from information_schema.columns " +
+                "where table_schema = schema() and table_name = 'APPLICATIONS' and column_name = 'ID'",
+                String.class));
+    }
+
+    @Test
+    public void testOtherDatabasesAreNotSeeded(){
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        SessionFactoryImplementor sessionFactory = mock(SessionFactoryImplementor.class, Mockito.RETURNS_DEEP_STUBS);
+        when(entityManagerFactory.unwrap(SessionFactoryImplementor.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getJdbcServices().getDialect()).thenReturn(new PostgreSQL95Dialect());
+        JdbcTemplate postgresJdbcTemplate = mock(JdbcTemplate.class);
+
+        assertEquals(0, new IdSequenceSeeder(entityManagerFactory, postgresJdbcTemplate).seed());
+        verifyZeroInteractions(postgresJdbcTemplate);
+    }
+}
@@ -0,0 +1,280 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.messaging;
+
+import com.heavenhr.rproc.rproc.entities.Application;
+import com.heavenhr.rproc.rproc.entities.Offer;
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.amqp.AmqpIOException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncNotificationServiceTest {
+    private static final long TIMEOUT = 5;
+
+    private NotificationProperties notificationProperties;
+    private MeterRegistry meterRegistry;
+    private AsyncNotificationService asyncNotificationService;
+
+    private static Application application(long applicationId){
+        Offer offer = new Offer();
+        offer.setId(1);
+        offer.setJobTitle("job title");
+
+        Application application = new Application();
+        application.setId(applicationId);
+        application.setEmail("email" + applicationId + "@email.com");
+        application.setOffer(offer);
+        application.setApplicationStatus(ApplicationStatus.APPLIED);
+
+        return application;
+    }
+
+    private static Notification notification(long applicationId){
+        return new Notification(application(applicationId));
+    }
+
+    private static Notification notification(long applicationId, ApplicationStatus applicationStatus){
+        return new Notification(applicationId, applicationStatus, "email" + applicationId + "@email.com", "body");
+    }
+
+    private void start(NotificationBroker notificationBroker){
+        asyncNotificationService = new AsyncNotificationService(
+                notificationBroker,
+                notificationProperties,
+                meterRegistry);
+        asyncNotificationService.start();
+    }
+
+    @Before
+    public void before(){
+        notificationProperties = new NotificationProperties();
+        notificationProperties.setBatchSize(10);
+        notificationProperties.setLinger(Duration.ofMillis(200));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @After
+    public void after() throws InterruptedException{
+        if (asyncNotificationService != null) asyncNotificationService.stop();
+    }
+
+    @Test
+    public void testPublishInBatches() throws Exception{
+        List<List<Notification>> batches = new CopyOnWriteArrayList<>();
+        start(notifications -> batches.add(new ArrayList<>(notifications)));
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 1; i <= 25; i++) futures.add(asyncNotificationService.publish(notification(i)));
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(TIMEOUT, TimeUnit.SECONDS);
+
+        assertEquals(25, batches.stream().mapToInt(List::size).sum());
+        assertTrue(batches.stream().allMatch(batch -> batch.size() <= 10));
+        //  notifications are queued faster than the linger time, so batches are full except the last one
+        assertEquals(3, batches.size());
+        //  the order is kept
+        assertEquals(1, batches.get(0).get(0).getApplicationId());
+        assertEquals(25, batches.get(2).get(4).getApplicationId());
+
+        assertEquals(25, meterRegistry.counter("rproc.notifications.published").count(), 0);
+        assertEquals(3, meterRegistry.get("rproc.notifications.confirm.latency").timer().count());
+    }
+
+    @Test
+    public void testPublishIncompleteBatchAfterLinger() throws Exception{
+        List<List<Notification>> batches = new CopyOnWriteArrayList<>();
+        start(notifications -> batches.add(new ArrayList<>(notifications)));
+
+        asyncNotificationService.publish(notification(1)).get(TIMEOUT, TimeUnit.SECONDS);
+
+        assertEquals(1, batches.size());
+        assertEquals(1, batches.get(0).size());
+    }
+
+    @Test
+    public void testPublishWithBrokerFailure() throws Exception{
+        start(notifications -> {
+            throw new AmqpIOException(new IOException("broker is unavailable"));
+        });
+
+        CompletableFuture<Void> future = asyncNotificationService.publish(notification(1));
+        try{
+            future.get(TIMEOUT, TimeUnit.SECONDS);
+            fail("notification must not be confirmed");
+        }catch (ExecutionException e){
+            assertTrue(e.getCause() instanceof AmqpIOException);
+        }
+
+        assertEquals(1, meterRegistry.counter("rproc.notifications.failed").count(), 0);
+        assertEquals(0, meterRegistry.counter("rproc.notifications.published").count(), 0);
+    }
+
+    @Test
+    public void testPublishWithFullQueue() throws Exception{
+        notificationProperties.setQueueCapacity(1);
+        notificationProperties.setBatchSize(1);
+        CountDownLatch brokerIsCalled = new CountDownLatch(1);
+        CountDownLatch brokerIsAvailable = new CountDownLatch(1);
+        start(notifications -> {
+            brokerIsCalled.countDown();
+            try{
+                brokerIsAvailable.await();
+            }catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        //  the first notification is being published, the second one is queued and the third one is dropped
+        CompletableFuture<Void> first = asyncNotificationService.publish(notification(1));
+        assertTrue(brokerIsCalled.await(TIMEOUT, TimeUnit.SECONDS));
+        CompletableFuture<Void> second = asyncNotificationService.publish(notification(2));
+        CompletableFuture<Void> third = asyncNotificationService.publish(notification(3));
+
+        assertEquals(1, meterRegistry.get("rproc.notifications.queue.depth").gauge().value(), 0);
+        assertTrue(third.isCompletedExceptionally());
+        assertEquals(1, meterRegistry.counter("rproc.notifications.dropped").count(), 0);
+
+        brokerIsAvailable.countDown();
+        CompletableFuture.allOf(first, second).get(TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testStopPublishesQueuedNotifications() throws Exception{
+        List<Notification> published = new CopyOnWriteArrayList<>();
+        start(published::addAll);
+
+        for (int i = 1; i <= 5; i++) asyncNotificationService.publish(notification(i));
+        asyncNotificationService.stop();
+        asyncNotificationService = null;
+
+        assertEquals(5, published.size());
+    }
+
+    @Test
+    public void testSendNotificationWithinTransaction() throws Exception{
+        List<Notification> published = new CopyOnWriteArrayList<>();
+        start(published::addAll);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try{
+            asyncNotificationService.sendNotification(application(1));
+            asyncNotificationService.sendNotifications(Arrays.asList(application(2), application(3)));
+
+            //  nothing is queued until the transaction is committed
+            assertEquals(0, meterRegistry.get("rproc.notifications.queue.depth").gauge().value(), 0);
+            assertEquals(0, published.size());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        }finally{
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        asyncNotificationService.stop();
+        asyncNotificationService = null;
+
+        assertEquals(3, published.size());
+    }
+
+    @Test
+    public void testWeightedDispatch() throws Exception{
+        List<List<Notification>> batches = new CopyOnWriteArrayList<>();
+        CountDownLatch brokerIsCalled = new CountDownLatch(1);
+        CountDownLatch brokerIsAvailable = new CountDownLatch(1);
+        start(notifications -> {
+            brokerIsCalled.countDown();
+            try{
+                brokerIsAvailable.await();
+            }catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+            batches.add(new ArrayList<>(notifications));
+        });
+
+        //  rejections are queued while the broker is busy, then invitations come
+        CompletableFuture<Void> first = asyncNotificationService.publish(notification(0, ApplicationStatus.APPLIED));
+        assertTrue(brokerIsCalled.await(TIMEOUT, TimeUnit.SECONDS));
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) futures.add(asyncNotificationService.publish(notification(i, ApplicationStatus.REJECTED)));
+        for (int i = 21; i <= 30; i++) futures.add(asyncNotificationService.publish(notification(i, ApplicationStatus.INVITED)));
+        assertEquals(20, meterRegistry.get("rproc.notifications.lane.depth").tag("lane", "REJECTED").gauge().value(), 0);
+        assertEquals(30, meterRegistry.get("rproc.notifications.queue.depth").gauge().value(), 0);
+
+        brokerIsAvailable.countDown();
+        first.get(TIMEOUT, TimeUnit.SECONDS);
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(TIMEOUT, TimeUnit.SECONDS);
+
+        //  invitations are taken 4 to 1 with rejections
+        List<Notification> second = batches.get(1);
+        assertEquals(10, second.size());
+        assertEquals(8, second.stream().filter(n -> n.getApplicationStatus() == ApplicationStatus.INVITED).count());
+        //  the order is kept within a lane
+        assertEquals(21, second.get(0).getApplicationId());
+        assertEquals(1, second.get(4).getApplicationId());
+        assertEquals(
+                ApplicationStatus.REJECTED,
+                batches.get(batches.size() - 1).get(batches.get(batches.size() - 1).size() - 1).getApplicationStatus());
+
+        assertEquals(10, meterRegistry.get("rproc.notifications.lane.published").tag("lane", "INVITED").counter().count(), 0);
+        assertEquals(20, meterRegistry.get("rproc.notifications.lane.published").tag("lane", "REJECTED").counter().count(), 0);
+        assertEquals(20, meterRegistry.get("rproc.notifications.lane.wait").tag("lane", "REJECTED").timer().count());
+    }
+
+    @Test
+    public void testApplicationOrderAcrossLanes() throws Exception{
+        List<Notification> published = new CopyOnWriteArrayList<>();
+        CountDownLatch brokerIsCalled = new CountDownLatch(1);
+        CountDownLatch brokerIsAvailable = new CountDownLatch(1);
+        start(notifications -> {
+            brokerIsCalled.countDown();
+            try{
+                brokerIsAvailable.await();
+            }catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+            published.addAll(notifications);
+        });
+
+        //  applications are queued while the broker is busy, the last one is invited right after applying
+        CompletableFuture<Void> first = asyncNotificationService.publish(notification(0, ApplicationStatus.APPLIED));
+        assertTrue(brokerIsCalled.await(TIMEOUT, TimeUnit.SECONDS));
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) futures.add(asyncNotificationService.publish(notification(i, ApplicationStatus.APPLIED)));
+        futures.add(asyncNotificationService.publish(notification(20, ApplicationStatus.INVITED)));
+        futures.add(asyncNotificationService.publish(notification(21, ApplicationStatus.INVITED)));
+
+        brokerIsAvailable.countDown();
+        first.get(TIMEOUT, TimeUnit.SECONDS);
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(TIMEOUT, TimeUnit.SECONDS);
+
+        //  the invitation of the 20th application follows its application, the 21st one is taken ahead of the others
+        List<ApplicationStatus> statuses = new ArrayList<>();
+        published.stream().filter(n -> n.getApplicationId() == 20).forEach(n -> statuses.add(n.getApplicationStatus()));
+        assertEquals(Arrays.asList(ApplicationStatus.APPLIED, ApplicationStatus.INVITED), statuses);
+        assertEquals(21, published.get(1).getApplicationId());
+
+        //  once the application's notifications are published, its next one goes to its status' lane
+        asyncNotificationService.publish(notification(20, ApplicationStatus.HIRED)).get(TIMEOUT, TimeUnit.SECONDS);
+        assertEquals(1, meterRegistry.get("rproc.notifications.lane.published").tag("lane", "INVITED").counter().count(), 0);
+        assertEquals(1, meterRegistry.get("rproc.notifications.lane.published").tag("lane", "HIRED").counter().count(), 0);
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.messaging;
+
+import lombok.Setter;
+import org.springframework.amqp.AmqpConnectException;
+
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Broker stand-in for tests, keeps published notifications in memory
+ */
+public class InMemoryNotificationBroker implements NotificationBroker {
+    private final List<Notification> published = new CopyOnWriteArrayList<>();
+
+    @Setter
+    private volatile boolean available = true;
+
+    @Override
+    public void publish(List<Notification> notifications){
+        if (!available) throw new AmqpConnectException(new ConnectException("broker is unavailable"));
+
+        published.addAll(notifications);
+    }
+
+    public List<Notification> getPublished(){
+        return new ArrayList<>(published);
+    }
+
+    public void clear(){
+        published.clear();
+    }
+}
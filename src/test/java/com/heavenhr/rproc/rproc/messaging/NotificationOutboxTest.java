@@ -0,0 +1,252 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.messaging;
+
+import com.heavenhr.rproc.rproc.controllers.ApplicationController;
+import com.heavenhr.rproc.rproc.entities.Application;
+import com.heavenhr.rproc.rproc.entities.NotificationOutboxEntry;
+import com.heavenhr.rproc.rproc.entities.Offer;
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import com.heavenhr.rproc.rproc.repositories.ApplicationRepository;
+import com.heavenhr.rproc.rproc.repositories.NotificationOutboxRepository;
+import com.heavenhr.rproc.rproc.repositories.OfferRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Status changes go through the outbox to the in-memory broker
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rproc-outbox;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        //  the relay is called by tests only
+        "rproc.notifications.outbox.poll-interval=3600000"})
+public class NotificationOutboxTest {
+    @TestConfiguration
+    static class BrokerConfig {
+        @Bean
+        @Primary
+        public InMemoryNotificationBroker inMemoryNotificationBroker(){
+            return new InMemoryNotificationBroker();
+        }
+    }
+
+    @Autowired
+    private ApplicationController applicationController;
+
+    @Autowired
+    private ApplicationRepository applicationRepository;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private NotificationOutboxRepository notificationOutboxRepository;
+
+    @Autowired
+    private NotificationOutboxRelay notificationOutboxRelay;
+
+    @Autowired
+    private InMemoryNotificationBroker inMemoryNotificationBroker;
+
+    @Autowired
+    private AsyncNotificationService asyncNotificationService;
+
+    private Application application;
+
+    @Before
+    public void before(){
+        notificationOutboxRepository.deleteAll();
+        inMemoryNotificationBroker.clear();
+        inMemoryNotificationBroker.setAvailable(true);
+
+        Offer offer = new Offer();
+        offer.setJobTitle("outbox " + UUID.randomUUID().toString().substring(0, 8));
+        offer = offerRepository.save(offer);
+
+        application = new Application();
+        application.setEmail("outbox@email.com");
+        application.setOffer(offer);
+        application = applicationRepository.save(application);
+    }
+
+    private NotificationOutboxRelay coalescingRelay(MeterRegistry meterRegistry){
+        NotificationProperties notificationProperties = new NotificationProperties();
+        notificationProperties.getOutbox().setCoalescingWindow(Duration.ofMinutes(10));
+
+        return new NotificationOutboxRelay(
+                notificationOutboxRepository,
+                asyncNotificationService,
+                notificationProperties,
+                meterRegistry);
+    }
+
+    /**
+     * moves entries saved so far to the past
+     *
+     * @param age
+     */
+    private void age(Duration age){
+        List<NotificationOutboxEntry> entries = notificationOutboxRepository.findAll();
+        entries.forEach(entry -> entry.setCreatedAt(entry.getCreatedAt().minus(age)));
+        notificationOutboxRepository.saveAll(entries);
+    }
+
+    private void patch(ApplicationStatus applicationStatus){
+        Map<String, String> patch = new HashMap<>();
+        patch.put("applicationStatus", applicationStatus.toString());
+        applicationController.patchApplication(application.getId(), patch);
+    }
+
+    @Test
+    public void testStatusChangeIsRelayed(){
+        patch(ApplicationStatus.INVITED);
+
+        List<NotificationOutboxEntry> entries = notificationOutboxRepository.findAll();
+        assertEquals(1, entries.size());
+        assertEquals(application.getId(), entries.get(0).getApplicationId());
+        assertEquals(ApplicationStatus.INVITED, entries.get(0).getApplicationStatus());
+        assertNull(entries.get(0).getSentAt());
+        //  nothing is published until the entry is relayed
+        assertEquals(0, inMemoryNotificationBroker.getPublished().size());
+
+        assertEquals(1, notificationOutboxRelay.relay());
+
+        List<Notification> published = inMemoryNotificationBroker.getPublished();
+        assertEquals(1, published.size());
+        assertEquals(application.getId(), published.get(0).getApplicationId());
+        assertEquals(application.getEmail(), published.get(0).getEmail());
+        assertEquals(entries.get(0).getBody(), published.get(0).getBody());
+        assertEquals(0, notificationOutboxRepository.countBySentAtIsNull());
+        assertNotNull(notificationOutboxRepository.findAll().get(0).getSentAt());
+
+        //  sent entries are not relayed again
+        assertEquals(0, notificationOutboxRelay.relay());
+        assertEquals(1, inMemoryNotificationBroker.getPublished().size());
+    }
+
+    @Test
+    public void testEntriesAreKeptWhileBrokerIsUnavailable(){
+        inMemoryNotificationBroker.setAvailable(false);
+        patch(ApplicationStatus.INVITED);
+        patch(ApplicationStatus.HIRED);
+
+        assertEquals(0, notificationOutboxRelay.relay());
+        assertEquals(2, notificationOutboxRepository.countBySentAtIsNull());
+
+        inMemoryNotificationBroker.setAvailable(true);
+        assertEquals(2, notificationOutboxRelay.relay());
+
+        //  notifications are relayed in the order of status changes
+        List<Notification> published = inMemoryNotificationBroker.getPublished();
+        assertEquals(2, published.size());
+        assertEquals(ApplicationStatus.INVITED, published.get(0).getApplicationStatus());
+        assertEquals(ApplicationStatus.HIRED, published.get(1).getApplicationStatus());
+        assertEquals(0, notificationOutboxRepository.countBySentAtIsNull());
+    }
+
+    @Test
+    public void testRolledBackStatusChangeHasNoNotification(){
+        try{
+            patch(ApplicationStatus.HIRED);
+            fail("APPLIED -> HIRED is not allowed");
+        }catch (IllegalArgumentException e){
+            //  expected
+        }
+
+        assertEquals(0, notificationOutboxRepository.count());
+    }
+
+    @Test
+    public void testSentEntriesAreRemoved(){
+        patch(ApplicationStatus.INVITED);
+        notificationOutboxRelay.relay();
+
+        assertEquals(0, notificationOutboxRepository.deleteSentBefore(LocalDateTime.now().minusDays(1)));
+        assertEquals(1, notificationOutboxRepository.deleteSentBefore(LocalDateTime.now().plusSeconds(1)));
+        assertEquals(0, notificationOutboxRepository.count());
+    }
+
+    @Test
+    public void testCoalescing(){
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        NotificationOutboxRelay notificationOutboxRelay = coalescingRelay(meterRegistry);
+
+        patch(ApplicationStatus.INVITED);
+        patch(ApplicationStatus.REJECTED);
+
+        //  the status has changed within the window
+        assertEquals(0, notificationOutboxRelay.relay());
+        assertEquals(0, inMemoryNotificationBroker.getPublished().size());
+
+        age(Duration.ofMinutes(15));
+        assertEquals(1, notificationOutboxRelay.relay());
+
+        //  only the latest status is published, both entries are sent
+        List<Notification> published = inMemoryNotificationBroker.getPublished();
+        assertEquals(1, published.size());
+        assertEquals(ApplicationStatus.REJECTED, published.get(0).getApplicationStatus());
+        assertEquals(0, notificationOutboxRepository.countBySentAtIsNull());
+        assertEquals(1, meterRegistry.counter("rproc.notifications.coalesced").count(), 0);
+    }
+
+    @Test
+    public void testCoalescingWaitsForTheLatestChange(){
+        NotificationOutboxRelay notificationOutboxRelay = coalescingRelay(new SimpleMeterRegistry());
+
+        patch(ApplicationStatus.INVITED);
+        age(Duration.ofMinutes(15));
+        patch(ApplicationStatus.HIRED);
+
+        //  the earlier change is out of the window, but the application has changed again within it
+        assertEquals(0, notificationOutboxRelay.relay());
+        assertEquals(2, notificationOutboxRepository.countBySentAtIsNull());
+
+        age(Duration.ofMinutes(15));
+        assertEquals(1, notificationOutboxRelay.relay());
+        assertEquals(ApplicationStatus.HIRED, inMemoryNotificationBroker.getPublished().get(0).getApplicationStatus());
+        assertEquals(0, notificationOutboxRepository.countBySentAtIsNull());
+    }
+
+    @Test
+    public void testCoalescingWithBrokerUnavailable(){
+        NotificationOutboxRelay notificationOutboxRelay = coalescingRelay(new SimpleMeterRegistry());
+
+        patch(ApplicationStatus.INVITED);
+        patch(ApplicationStatus.REJECTED);
+        age(Duration.ofMinutes(15));
+
+        inMemoryNotificationBroker.setAvailable(false);
+        assertEquals(0, notificationOutboxRelay.relay());
+        assertEquals(2, notificationOutboxRepository.countBySentAtIsNull());
+
+        inMemoryNotificationBroker.setAvailable(true);
+        assertEquals(1, notificationOutboxRelay.relay());
+        assertEquals(0, notificationOutboxRepository.countBySentAtIsNull());
+    }
+}
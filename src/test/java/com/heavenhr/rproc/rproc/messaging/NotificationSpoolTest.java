@@ -0,0 +1,287 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.messaging;
+
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.ConnectException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NotificationSpoolTest {
+    private static final long CAPACITY = 64 * 1024;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path path;
+    private NotificationSpool notificationSpool;
+    private InMemoryNotificationBroker notificationBroker;
+
+    private static Notification notification(long applicationId){
+        return new Notification(
+                applicationId,
+                ApplicationStatus.APPLIED,
+                "email" + applicationId + "@email.com",
+                NotificationWriter.body(applicationId, "job title", ApplicationStatus.APPLIED));
+    }
+
+    private static List<Notification> notifications(long from, long to){
+        return LongStream.rangeClosed(from, to)
+                .mapToObj(NotificationSpoolTest::notification)
+                .collect(Collectors.toList());
+    }
+
+    private static List<Long> applicationIds(List<Notification> notifications){
+        return notifications.stream().map(Notification::getApplicationId).collect(Collectors.toList());
+    }
+
+    private NotificationSpool open(long capacity) throws IOException{
+        return new NotificationSpool(path, capacity, new SimpleMeterRegistry());
+    }
+
+    /**
+     * simulates a crash: the spool is not drained and the file is opened again
+     */
+    private void reopen() throws IOException{
+        notificationSpool.close();
+        notificationSpool = open(CAPACITY);
+    }
+
+    @Before
+    public void before() throws IOException{
+        path = temporaryFolder.getRoot().toPath().resolve("rproc.notifications.spool");
+        notificationSpool = open(CAPACITY);
+        notificationBroker = new InMemoryNotificationBroker();
+    }
+
+    @After
+    public void after() throws IOException{
+        notificationSpool.close();
+    }
+
+    @Test
+    public void testDrainInOrder(){
+        assertTrue(notificationSpool.isEmpty());
+        assertTrue(notificationSpool.append(notifications(1, 3)));
+        assertTrue(notificationSpool.append(notifications(4, 5)));
+        assertEquals(5, notificationSpool.size());
+
+        assertEquals(2, notificationSpool.drain(2, notificationBroker::publish));
+        assertEquals(3, notificationSpool.size());
+        assertEquals(3, notificationSpool.drain(10, notificationBroker::publish));
+        assertEquals(0, notificationSpool.drain(10, notificationBroker::publish));
+
+        assertTrue(notificationSpool.isEmpty());
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), applicationIds(notificationBroker.getPublished()));
+        //  notifications are the same as spooled ones
+        assertEquals(notifications(1, 5), notificationBroker.getPublished());
+        assertEquals(new Notification(6, null, null, null), roundTrip(new Notification(6, null, null, null)));
+    }
+
+    private Notification roundTrip(Notification notification){
+        notificationBroker.clear();
+        notificationSpool.append(Collections.singletonList(notification));
+        notificationSpool.drain(1, notificationBroker::publish);
+
+        return notificationBroker.getPublished().get(0);
+    }
+
+    @Test
+    public void testDrainWithBrokerUnavailable(){
+        notificationSpool.append(notifications(1, 3));
+
+        notificationBroker.setAvailable(false);
+        try{
+            notificationSpool.drain(10, notificationBroker::publish);
+            fail("notifications must not be drained");
+        }catch (AmqpConnectException e){
+            //  expected
+        }
+        assertEquals(3, notificationSpool.size());
+
+        notificationBroker.setAvailable(true);
+        assertEquals(3, notificationSpool.drain(10, notificationBroker::publish));
+        assertEquals(Arrays.asList(1L, 2L, 3L), applicationIds(notificationBroker.getPublished()));
+    }
+
+    @Test
+    public void testOffsetsSurviveReopening() throws IOException{
+        notificationSpool.append(notifications(1, 4));
+        notificationSpool.drain(1, notificationBroker::publish);
+
+        reopen();
+
+        assertEquals(3, notificationSpool.size());
+        notificationSpool.drain(10, notificationBroker::publish);
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L), applicationIds(notificationBroker.getPublished()));
+
+        reopen();
+
+        assertTrue(notificationSpool.isEmpty());
+    }
+
+    @Test
+    public void testIncompleteRecordIsDropped() throws IOException{
+        notificationSpool.append(notifications(1, 2));
+        notificationSpool.close();
+
+        //  the last record's byte is lost as if the spool crashed while writing it
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")){
+            file.seek(12);
+            int writeOffset = file.readInt();
+            file.seek(16 + writeOffset - 1);
+            byte last = file.readByte();
+            file.seek(16 + writeOffset - 1);
+            file.writeByte(last ^ 0xff);
+        }
+        notificationSpool = open(CAPACITY);
+
+        assertEquals(1, notificationSpool.size());
+        notificationSpool.append(notifications(3, 3));
+        notificationSpool.drain(10, notificationBroker::publish);
+        assertEquals(Arrays.asList(1L, 3L), applicationIds(notificationBroker.getPublished()));
+    }
+
+    @Test
+    public void testCapacity() throws IOException{
+        notificationSpool.close();
+        path = temporaryFolder.getRoot().toPath().resolve("small.spool");
+        notificationSpool = open(1024);
+
+        assertTrue(notificationSpool.append(notifications(1, 5)));
+        //  not enough space for all of them, none is appended
+        assertFalse(notificationSpool.append(notifications(6, 10)));
+        assertEquals(5, notificationSpool.size());
+
+        //  space is reused once the spool is drained
+        notificationSpool.drain(10, notificationBroker::publish);
+        assertTrue(notificationSpool.append(notifications(6, 10)));
+        notificationSpool.drain(10, notificationBroker::publish);
+        assertEquals(notifications(1, 10), notificationBroker.getPublished());
+    }
+
+    /**
+     * notifications keep coming after an outage, so the spool is never empty while it is drained
+     */
+    @Test
+    public void testSpaceIsReclaimedWhileNotEmpty() throws IOException{
+        notificationSpool.close();
+        path = temporaryFolder.getRoot().toPath().resolve("small.spool");
+        notificationSpool = open(1024);
+
+        assertTrue(notificationSpool.append(notifications(1, 2)));
+        for (long applicationId = 3; applicationId <= 100; applicationId++){
+            assertTrue(notificationSpool.append(notifications(applicationId, applicationId)));
+            assertEquals(1, notificationSpool.drain(1, notificationBroker::publish));
+            assertEquals(2, notificationSpool.size());
+        }
+
+        //  records left are moved to the file's start and survive reopening
+        notificationSpool.close();
+        notificationSpool = open(1024);
+        notificationSpool.drain(10, notificationBroker::publish);
+        assertEquals(notifications(1, 100), notificationBroker.getPublished());
+    }
+
+    @Test
+    public void testDrainWithConcurrentAppends() throws Exception{
+        notificationSpool.close();
+        path = temporaryFolder.getRoot().toPath().resolve("small.spool");
+        notificationSpool = open(2048);
+
+        long last = 2000;
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try{
+            Future<?> appends = executorService.submit(() -> {
+                for (long applicationId = 1; applicationId <= last; applicationId++){
+                    //  waits for the drain to free space
+                    while (!notificationSpool.append(notifications(applicationId, applicationId))){
+                        Thread.yield();
+                    }
+                }
+            });
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (notificationBroker.getPublished().size() < last && System.nanoTime() < deadline){
+                //  appends are moved to the file's start while a batch is replayed
+                notificationSpool.drain(3, notificationBroker::publish);
+            }
+            appends.get(1, TimeUnit.SECONDS);
+        }finally{
+            executorService.shutdownNow();
+        }
+
+        assertEquals(notifications(1, last), notificationBroker.getPublished());
+        assertTrue(notificationSpool.isEmpty());
+    }
+
+    @Test
+    public void testRabbitNotificationServiceSpoolsUntilDrained(){
+        RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+        @SuppressWarnings("unchecked")
+        ObjectProvider<NotificationSpool> spoolProvider = mock(ObjectProvider.class);
+        when(spoolProvider.getIfAvailable()).thenReturn(notificationSpool);
+        NotificationProperties notificationProperties = new NotificationProperties();
+        RabbitNotificationService rabbitNotificationService = new RabbitNotificationService(
+                rabbitTemplate,
+                new NotificationWriter(),
+                spoolProvider,
+                notificationProperties);
+        NotificationSpoolDrainer notificationSpoolDrainer = new NotificationSpoolDrainer(
+                notificationSpool,
+                rabbitNotificationService,
+                notificationProperties);
+
+        when(rabbitTemplate.invoke(any())).thenThrow(new AmqpConnectException(new ConnectException("broker is unavailable")));
+        rabbitNotificationService.publish(notifications(1, 2));
+        assertEquals(2, notificationSpool.size());
+        assertEquals(0, notificationSpoolDrainer.drain());
+
+        //  the broker is back, but new notifications go after the spooled ones
+        reset(rabbitTemplate);
+        rabbitNotificationService.publish(notifications(3, 3));
+        assertEquals(3, notificationSpool.size());
+        verify(rabbitTemplate, times(0)).invoke(any());
+
+        assertEquals(3, notificationSpoolDrainer.drain());
+        assertTrue(notificationSpool.isEmpty());
+        verify(rabbitTemplate, times(1)).invoke(any());
+
+        //  notifications are sent directly once the spool is drained
+        rabbitNotificationService.publish(notifications(4, 4));
+        verify(rabbitTemplate, times(2)).invoke(any());
+        assertTrue(notificationSpool.isEmpty());
+    }
+}
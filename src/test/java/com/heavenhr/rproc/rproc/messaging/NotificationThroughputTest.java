@@ -0,0 +1,172 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.messaging;
+
+import com.heavenhr.rproc.rproc.controllers.ApplicationController;
+import com.heavenhr.rproc.rproc.entities.Application;
+import com.heavenhr.rproc.rproc.entities.Offer;
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import com.heavenhr.rproc.rproc.repositories.ApplicationRepository;
+import com.heavenhr.rproc.rproc.repositories.OfferRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Drives status patches from several threads through the outbox to the local broker, which fails some batches,
+ * and reports the patches' throughput and percentiles of the latency from a patch to its notification.
+ *
+ * Every thread patches applications of its own offer, so threads do not wait for each other's offer funnel.
+ * The test takes a while, so it is skipped unless rproc.throughput is set.
+ * The number of patches and threads are set with rproc.throughput.patches and rproc.throughput.threads:
+ *  mvn test -Dtest=NotificationThroughputTest -Drproc.throughput=true -Drproc.throughput.patches=50000 -Drproc.throughput.threads=16
+ */
+@Slf4j
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles(LocalNotificationBroker.PROFILE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rproc-throughput;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.heavenhr.rproc=WARN",
+        "rproc.notifications.outbox.poll-interval=10",
+        "rproc.notifications.local-broker.latency=1ms",
+        "rproc.notifications.local-broker.failure-rate=0.02"})
+public class NotificationThroughputTest {
+    private static final int PATCHES = Integer.getInteger("rproc.throughput.patches", 1000);
+    private static final int THREADS = Integer.getInteger("rproc.throughput.threads", 8);
+    private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(60);
+
+    @Autowired
+    private ApplicationController applicationController;
+
+    @Autowired
+    private ApplicationRepository applicationRepository;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private LocalNotificationBroker localNotificationBroker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<List<Long>> applicationIds = new ArrayList<>();
+    private final Map<Long, Long> patchedAt = new ConcurrentHashMap<>();
+    private final Map<Long, Long> notifiedAt = new ConcurrentHashMap<>();
+
+    /**
+     * skipped before the context is loaded
+     */
+    @BeforeClass
+    public static void enabled(){
+        Assume.assumeTrue("rproc.throughput is not set", Boolean.getBoolean("rproc.throughput"));
+    }
+
+    @Before
+    public void before(){
+        for (int t = 0; t < THREADS; t++){
+            Offer offer = new Offer();
+            offer.setJobTitle("throughput " + UUID.randomUUID().toString().substring(0, 8));
+            offer = offerRepository.save(offer);
+
+            List<Application> applications = new ArrayList<>();
+            for (int i = t; i < PATCHES; i += THREADS){
+                Application application = new Application();
+                application.setEmail("throughput" + i + "@email.com");
+                application.setOffer(offer);
+                applications.add(application);
+            }
+
+            List<Long> ids = new ArrayList<>();
+            applicationRepository.saveAll(applications).forEach(application -> ids.add(application.getId()));
+            applicationIds.add(ids);
+        }
+
+        //  notifications may be delivered twice, the first one counts
+        localNotificationBroker.subscribe(notification -> {
+            if (notification.getApplicationStatus() == ApplicationStatus.INVITED){
+                notifiedAt.putIfAbsent(notification.getApplicationId(), System.nanoTime());
+            }
+        });
+    }
+
+    private void patch(List<Long> ids){
+        for (long id: ids){
+            Map<String, String> patch = new HashMap<>();
+            patch.put("applicationStatus", ApplicationStatus.INVITED.toString());
+
+            patchedAt.put(id, System.nanoTime());
+            applicationController.patchApplication(id, patch);
+        }
+    }
+
+    @Test
+    public void testThroughput() throws Exception{
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        try{
+            List<Future<?>> futures = new ArrayList<>();
+            applicationIds.forEach(ids -> futures.add(executorService.submit(() -> patch(ids))));
+            for (Future<?> future: futures) future.get();
+        }finally{
+            executorService.shutdown();
+        }
+        long patched = System.nanoTime() - start;
+
+        while (notifiedAt.size() < PATCHES && System.nanoTime() - start < TIMEOUT){
+            Thread.sleep(10);
+        }
+        long notified = System.nanoTime() - start;
+        assertEquals(PATCHES, notifiedAt.size());
+
+        Timer latency = Timer.builder("latency")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(new SimpleMeterRegistry());
+        notifiedAt.forEach((id, at) -> latency.record(at - patchedAt.get(id), TimeUnit.NANOSECONDS));
+        HistogramSnapshot snapshot = latency.takeSnapshot();
+
+        StringBuilder percentiles = new StringBuilder();
+        for (ValueAtPercentile percentile: snapshot.percentileValues()){
+            percentiles.append(String.format("p%.0f %.1f ms, ", percentile.percentile() * 100, percentile.value(TimeUnit.MILLISECONDS)));
+        }
+        log.warn("{} patches by {} threads in {} ms ({} patches/s), all notified in {} ms, {} notifications failed",
+                PATCHES,
+                THREADS,
+                TimeUnit.NANOSECONDS.toMillis(patched),
+                PATCHES * TimeUnit.SECONDS.toNanos(1) / patched,
+                TimeUnit.NANOSECONDS.toMillis(notified),
+                (long) meterRegistry.counter("rproc.notifications.failed").count());
+        log.warn("notification latency: {}max {} ms",
+                percentiles,
+                String.format("%.1f", snapshot.max(TimeUnit.MILLISECONDS)));
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.messaging;
+
+import com.heavenhr.rproc.rproc.entities.Application;
+import com.heavenhr.rproc.rproc.entities.Offer;
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import org.junit.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class NotificationWriterTest {
+    private final NotificationWriter notificationWriter = new NotificationWriter();
+    private final Jackson2JsonMessageConverter messageConverter = new Jackson2JsonMessageConverter();
+
+    private void assertSameMessage(Notification notification){
+        Message expected = messageConverter.toMessage(notification, new MessageProperties());
+        Message actual = notificationWriter.toMessage(notification);
+
+        assertEquals(new String(expected.getBody(), StandardCharsets.UTF_8), new String(actual.getBody(), StandardCharsets.UTF_8));
+        assertArrayEquals(expected.getBody(), actual.getBody());
+        assertEquals(expected.getMessageProperties(), actual.getMessageProperties());
+    }
+
+    @Test
+    public void testBody(){
+        Offer offer = new Offer();
+        offer.setJobTitle("job title");
+
+        Application application = new Application();
+        application.setId(15);
+        application.setOffer(offer);
+        application.setApplicationStatus(ApplicationStatus.APPLIED);
+
+        assertEquals(
+                "Dear applicant,\r\n" +
+                "\r\n" +
+                "your application #'15' to the position: 'job title' has changed the status to 'APPLIED'",
+                new Notification(application).getBody());
+        assertEquals(
+                "Dear applicant,\r\n" +
+                "\r\n" +
+                "your application #'0' to the position: 'null' has changed the status to 'null'",
+                NotificationWriter.body(0, null, null));
+    }
+
+    @Test
+    public void testSameMessageAsConverter(){
+        assertSameMessage(new Notification(1, ApplicationStatus.APPLIED, "email@email.com", "body"));
+        //  characters to escape and non-ascii ones
+        assertSameMessage(new Notification(
+                2,
+                ApplicationStatus.INVITED,
+                "\"quoted\"@email.com",
+                NotificationWriter.body(2, "Entwickler/in \\ Köln — \t\u0001", ApplicationStatus.INVITED)));
+        assertSameMessage(new Notification(3, null, null, null));
+    }
+
+    @Test
+    public void testBufferIsReused(){
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 1000; i++) body.append("long body ");
+
+        //  messages do not share bytes and are not separated, whatever size the previous one had
+        assertSameMessage(new Notification(1, ApplicationStatus.APPLIED, "email1@email.com", body.toString()));
+        assertSameMessage(new Notification(2, ApplicationStatus.APPLIED, "email2@email.com", "body"));
+        assertSameMessage(new Notification(3, ApplicationStatus.APPLIED, "email3@email.com", "body"));
+    }
+
+    @Test
+    public void testConcurrentWriters() throws Exception{
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try{
+            Future<?>[] futures = new Future<?>[4];
+            for (int t = 0; t < futures.length; t++){
+                int thread = t;
+                futures[t] = executorService.submit(() -> {
+                    for (int i = 0; i < 1000; i++){
+                        assertSameMessage(new Notification(
+                                i,
+                                ApplicationStatus.APPLIED,
+                                "email" + thread + "@email.com",
+                                NotificationWriter.body(i, "job title " + thread, ApplicationStatus.APPLIED)));
+                    }
+                });
+            }
+
+            for (Future<?> future: futures) future.get();
+        }finally{
+            executorService.shutdown();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.messaging;
+
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import org.junit.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.Arrays;
+
+import org.mockito.InOrder;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RabbitNotificationServiceTest {
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRoutingByStatus(){
+        RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+        RabbitOperations rabbitOperations = mock(RabbitOperations.class);
+        when(rabbitTemplate.getRoutingKey()).thenReturn("application.queue");
+        when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+                invocation.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(rabbitOperations));
+
+        NotificationProperties notificationProperties = new NotificationProperties();
+        notificationProperties.getLanes().get(ApplicationStatus.HIRED).setRoutingKey("application.hired.queue");
+        ObjectProvider<NotificationSpool> spoolProvider = mock(ObjectProvider.class);
+        RabbitNotificationService rabbitNotificationService = new RabbitNotificationService(
+                rabbitTemplate,
+                new NotificationWriter(),
+                spoolProvider,
+                notificationProperties);
+
+        rabbitNotificationService.publish(Arrays.asList(
+                new Notification(1, ApplicationStatus.HIRED, "email1@email.com", "body"),
+                new Notification(2, ApplicationStatus.REJECTED, "email2@email.com", "body")));
+
+        InOrder inOrder = inOrder(rabbitOperations);
+        inOrder.verify(rabbitOperations).send(eq("application.hired.queue"), any(Message.class));
+        inOrder.verify(rabbitOperations).send(eq("application.queue"), any(Message.class));
+        inOrder.verify(rabbitOperations).waitForConfirmsOrDie(any(Long.class));
+    }
+}
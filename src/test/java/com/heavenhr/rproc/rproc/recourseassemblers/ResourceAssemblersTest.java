@@ -0,0 +1,76 @@
+/**
+ * @author kudoji
+ */
+package com.heavenhr.rproc.rproc.recourseassemblers;
+
+import com.heavenhr.rproc.rproc.controllers.ApplicationController;
+import com.heavenhr.rproc.rproc.controllers.OfferController;
+import com.heavenhr.rproc.rproc.entities.Application;
+import com.heavenhr.rproc.rproc.entities.ApplicationSummary;
+import com.heavenhr.rproc.rproc.entities.Offer;
+import com.heavenhr.rproc.rproc.enums.ApplicationStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Resource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
+
+public class ResourceAssemblersTest {
+    private final OfferResourceAssembler offerResourceAssembler = new OfferResourceAssembler();
+    private final ApplicationResourceAssembler applicationResourceAssembler = new ApplicationResourceAssembler();
+
+    @Before
+    public void beforeTest(){
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/offers");
+        request.setScheme("https");
+        request.setServerName("rproc.example.com");
+        request.setServerPort(8443);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @After
+    public void afterTest(){
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void offerLinks_sameAsMethodOn(){
+        for (int id: new int[]{1, 42, 100500}){
+            Offer offer = new Offer();
+            offer.setId(id);
+
+            Resource<Offer> resource = offerResourceAssembler.toResource(offer);
+
+            assertEquals(
+                    linkTo(methodOn(OfferController.class).getOfferById(id, null)).withSelfRel(),
+                    resource.getId());
+            assertEquals(
+                    linkTo(methodOn(OfferController.class).getOfferFunnel(id)).withRel("funnel"),
+                    resource.getLink("funnel"));
+        }
+    }
+
+    @Test
+    public void applicationLinks_sameAsMethodOn(){
+        for (int id: new int[]{1, 42, 100500}){
+            Application application = new Application();
+            application.setId(id);
+            ApplicationSummary applicationSummary = new ApplicationSummary(
+                    id, "email@email.com", UUID.randomUUID(), ApplicationStatus.APPLIED, 1);
+
+            Link expected = linkTo(methodOn(ApplicationController.class).getApplication(id, null)).withSelfRel();
+
+            assertEquals(expected, applicationResourceAssembler.toResource(application).getId());
+            assertEquals(expected, applicationResourceAssembler.toResource(applicationSummary).getId());
+        }
+    }
+}